@@ -2,32 +2,46 @@ package delivery;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 public class Delivery {
     
     public static enum OrderStatus { NEW, CONFIRMED, PREPARATION, ON_DELIVERY, DELIVERED } 
-    private Map<Integer,Customer> customersMap= new HashMap<>();
+    private Map<Integer,Customer> customersMap= new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String,Customer> customersByEmail= new ConcurrentHashMap<>();
     private List<Item> itemsList= new ArrayList<>();
     private Map<Integer,Order> ordersMap= new HashMap<>();
-    private int customerCounter=0;
+    private final AtomicInteger customerCounter= new AtomicInteger();
     private int orderCounter=0;
     /**
      * Creates a new customer entry and returns the corresponding unique ID.
      * 
      * The ID for the first customer must be 1.
      * 
+     * Customers are indexed by email, so that a duplicate email is detected
+     * in constant time; the method can be called concurrently, and only one
+     * of the customers registering the same email at the same time succeeds.
+     * Rejected customers do not consume an ID.
      * 
      * @param name name of the customer
      * @param address customer address
      * @param phone customer phone number
      * @param email customer email
      * @return unique customer ID (positive integer)
+     * @throws DeliveryException if a customer with the same email exists
      */
     public int newCustomer(String name, String address, String phone, String email) throws DeliveryException {
-        if(customersMap.values().stream().map(Customer::getEmail).collect(Collectors.toList()).contains(email)) throw new DeliveryException();
-        customerCounter++;
-        customersMap.put(customerCounter, new Customer(customerCounter, name, address, phone, email));
-        return customerCounter;
+        if(email==null) throw new DeliveryException("Missing email");
+        Customer[] created= new Customer[1];
+        customersByEmail.computeIfAbsent(email, e->{
+            int id=customerCounter.incrementAndGet();
+            created[0]=new Customer(id, name, address, phone, email);
+            customersMap.put(id, created[0]);
+            return created[0];
+        });
+        if(created[0]==null) throw new DeliveryException("Duplicate email "+email);
+        return created[0].getId();
     }
     
     /**
@@ -12,6 +12,7 @@ public class AllTests {
         suite.addTestSuite(TestR2_Orders.class);
         suite.addTestSuite(TestR3_Preparazione.class);
         suite.addTestSuite(TestR4_Stats.class);
+        suite.addTestSuite(TestConcurrentCustomers.class);
         //$JUnit-END$
         return suite;
     }
@@ -0,0 +1,73 @@
+package additional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import delivery.*;
+import junit.framework.TestCase;
+
+public class TestConcurrentCustomers extends TestCase {
+
+    public void testRejectedDoesNotConsumeId() throws DeliveryException{
+        Delivery ds = new Delivery();
+
+        assertEquals(1, ds.newCustomer("John", "Duca degli Abruzzi 24", "011 555 44 3", "john@polito.it"));
+        try{
+            ds.newCustomer("Johnny", "Via Roma 1", "011 555 44 4", "john@polito.it");
+            fail("Duplicate customer not detected");
+        }catch(DeliveryException e){
+            // OK
+        }
+        assertEquals(2, ds.newCustomer("Jane", "Duca degli Abruzzi 24", "011 555 44 5", "jane@polito.it"));
+        assertEquals("John, Duca degli Abruzzi 24, 011 555 44 3, john@polito.it", ds.customerInfo(1));
+    }
+
+    public void testConcurrentSignups() throws InterruptedException{
+        Delivery ds = new Delivery();
+        int threads = 8;
+        int emails = 2000;
+        ConcurrentLinkedQueue<Integer> ids = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for(int t=0; t<threads; ++t) {
+            int thread = t;
+            workers[t] = new Thread(()->{
+                try {
+                    start.await();
+                } catch(InterruptedException e) {
+                    return;
+                }
+                // every email is registered by two threads
+                for(int i=0; i<emails; ++i) {
+                    int email = (i*threads + thread)/2;
+                    try {
+                        ids.add(ds.newCustomer("C" + thread, "address", "phone", "c" + email + "@polito.it"));
+                    } catch(DeliveryException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for(Thread worker : workers) worker.join();
+
+        int customers = threads*emails/2;
+        assertEquals(customers, ids.size());
+        assertEquals(customers, rejected.get());
+        Set<Integer> distinct = new HashSet<>(ids);
+        assertEquals(customers, distinct.size());
+        for(int id=1; id<=customers; ++id) assertTrue("Missing id " + id, distinct.contains(id));
+
+        List<String> list = ds.listCustomers();
+        Set<String> registered = new HashSet<>();
+        for(String info : list) registered.add(info.substring(info.lastIndexOf(' ')+1));
+        assertEquals(customers, list.size());
+        assertEquals(customers, registered.size());
+    }
+}
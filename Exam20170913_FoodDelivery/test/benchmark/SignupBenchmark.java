@@ -0,0 +1,51 @@
+package benchmark;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import delivery.Delivery;
+import delivery.DeliveryException;
+
+/**
+ * Measures the registration of many customers with {@code newCustomer},
+ * one thread registering all of them and then several threads sharing
+ * them, with one signup in a hundred reusing an existing email.
+ * <p>
+ * Usage: {@code SignupBenchmark [customers] [threads]},
+ * default 1 000 000 customers and as many threads as available processors.
+ */
+public class SignupBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int customers = args.length>0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        for(int round=0; round<3; ++round) {
+            run(customers, 1);
+            if(threads>1) run(customers, threads);
+        }
+    }
+
+    private static void run(int customers, int threads) throws InterruptedException {
+        Delivery ds = new Delivery();
+        AtomicInteger rejected = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for(int t=0; t<threads; ++t) {
+            int thread = t;
+            workers[t] = new Thread(()->{
+                for(int i=thread; i<customers; i+=threads) {
+                    int email = i%100==99 ? i-1 : i;
+                    try {
+                        ds.newCustomer("Customer " + i, "Via Roma " + i, "011 " + i, "customer" + email + "@polito.it");
+                    } catch(DeliveryException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for(Thread worker : workers) worker.join();
+        double elapsed = System.nanoTime()-start;
+        System.out.printf("%2d threads  %,d signups  %,d rejected  %8.1f ms  %6.1f ns/signup%n", threads, customers, rejected.get(), elapsed/1e6, elapsed/customers);
+    }
+}
@@ -0,0 +1,168 @@
+package vaccination;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Index of the persons by age interval.
+ * <p>
+ * Interval bounds are parsed once when the index is built, so that
+ * looking up the persons of an interval costs only the size of its bucket.
+ * The index also counts the allocated persons of each interval, the counters
+ * can be read while an allocation is running.
+ */
+class AgeIndex {
+    private final int[] lower;
+    private final List<String> labels= new ArrayList<>();
+    private final Map<String,Integer> positions= new HashMap<>();
+    private int[][] buckets= new int[0][];
+    private int[] sizes= new int[0];
+    private final AtomicIntegerArray allocated;
+
+    /**
+     * Builds an index with no intervals defined
+     */
+    AgeIndex() {
+        this.lower=new int[0];
+        this.allocated=new AtomicIntegerArray(1);
+    }
+
+    /**
+     * Builds the index for the intervals defined by the given breaks,
+     * the first interval starts at 0 and the last one has no upper limit.
+     *
+     * @param breaks the breaks between the intervals
+     */
+    AgeIndex(int... breaks) {
+        this.lower=new int[breaks.length+1];
+        int initial=0;
+        for(int i=0;i<breaks.length;i++){
+            lower[i]=initial;
+            addInterval(String.format("[%d,%d)", initial,breaks[i]));
+            initial=breaks[i];
+        }
+        lower[breaks.length]=initial;
+        addInterval(String.format("[%d,+)", initial));
+        this.allocated=new AtomicIntegerArray(labels.size()+1);
+    }
+
+    private void addInterval(String label){
+        positions.put(label, labels.size());
+        labels.add(label);
+        buckets=Arrays.copyOf(buckets, labels.size());
+        buckets[labels.size()-1]=new int[16];
+        sizes=Arrays.copyOf(sizes, labels.size());
+    }
+
+    /**
+     * @return the breaks the index was built with, {@code null} if no intervals are defined
+     */
+    int[] getBreaks(){
+        return lower.length==0 ? null : Arrays.copyOfRange(lower, 1, lower.length);
+    }
+
+    int size(){
+        return labels.size();
+    }
+
+    List<String> getLabels(){
+        return labels;
+    }
+
+    String getLabel(int interval){
+        return labels.get(interval);
+    }
+
+    /**
+     * @param label interval label
+     * @return position of the interval, -1 if the label is not defined
+     */
+    int indexOf(String label){
+        return positions.getOrDefault(label, -1);
+    }
+
+    /**
+     * @param age age of a person
+     * @return position of the interval containing the age, -1 if none
+     */
+    int intervalOf(int age){
+        if(lower.length==0 || age<0) return -1;
+        int pos=Arrays.binarySearch(lower, age);
+        if(pos>=0){
+            while(pos<lower.length-1 && lower[pos+1]==age) pos++;
+            return pos;
+        }
+        return -pos-2;
+    }
+
+    /**
+     * Adds a person to the bucket of its interval
+     *
+     * @param id person id
+     * @param year birth year of the person
+     */
+    void add(int id, int year){
+        int interval=intervalOf(Vaccines.CURRENT_YEAR-year);
+        if(interval<0) return;
+        if(sizes[interval]==buckets[interval].length) buckets[interval]=Arrays.copyOf(buckets[interval], 2*sizes[interval]);
+        buckets[interval][sizes[interval]++]=id;
+    }
+
+    /**
+     * @param interval interval position
+     * @return ids of the persons in the interval
+     */
+    IntStream getBucket(int interval){
+        return Arrays.stream(buckets[interval], 0, sizes[interval]);
+    }
+
+    /**
+     * @param year birth year of a person
+     * @return the allocation counter of the person: the interval position or,
+     *         for persons outside all intervals, {@link #size()}
+     */
+    int counterOf(int year){
+        int interval=intervalOf(Vaccines.CURRENT_YEAR-year);
+        return interval>=0 ? interval : labels.size();
+    }
+
+    /**
+     * Counts the allocation of a person
+     *
+     * @param year birth year of the person
+     */
+    void allocated(int year){
+        allocated.incrementAndGet(counterOf(year));
+    }
+
+    /**
+     * Counts the allocation of several persons
+     *
+     * @param counts number of persons for each counter, see {@link #counterOf(int)}
+     */
+    void allocated(int[] counts){
+        for(int i=0;i<counts.length;i++) if(counts[i]>0) allocated.addAndGet(i, counts[i]);
+    }
+
+    void clearAllocated(){
+        for(int i=0;i<allocated.length();i++) allocated.set(i, 0);
+    }
+
+    /**
+     * @param interval interval position
+     * @return number of allocated persons in the interval
+     */
+    int countAllocated(int interval){
+        return allocated.get(interval);
+    }
+
+    /**
+     * @return number of allocated persons, including those outside all intervals
+     */
+    int countAllocated(){
+        int count=0;
+        for(int i=0;i<allocated.length();i++) count+=allocated.get(i);
+        return count;
+    }
+}
@@ -0,0 +1,146 @@
+package vaccination;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Queues of the persons still to be allocated, one for each age interval
+ * plus one for the persons outside all intervals.
+ * <p>
+ * Each queue holds person ids sorted once, oldest first and then by id, when
+ * the engine is built and is then consumed from its head, so allocating
+ * {@code k} persons costs O(k).
+ */
+class AllocationEngine {
+    static final double PRIORITY=0.4;
+    private final int[][] queues;
+    private final int[] heads;
+
+    /**
+     * Builds the queues with the persons not yet allocated
+     *
+     * @param index the age intervals index
+     * @param people all the persons
+     */
+    AllocationEngine(AgeIndex index, PersonStore people) {
+        this.queues=new int[index.size()+1][];
+        this.heads=new int[queues.length];
+        for(int interval=0;interval<index.size();interval++){
+            queues[interval]=oldestFirst(index.getBucket(interval), people);
+        }
+        queues[index.size()]=oldestFirst(IntStream.range(0, people.size()).filter(id->index.intervalOf(Vaccines.CURRENT_YEAR-people.getYear(id))<0), people);
+    }
+
+    private static int[] oldestFirst(IntStream ids, PersonStore people){
+        long[] keys=ids.filter(id->!people.isAllocated(id)).mapToLong(id->((long) people.getYear(id))<<32 | id).toArray();
+        Arrays.parallelSort(keys);
+        int[] queue=new int[keys.length];
+        for(int i=0;i<keys.length;i++) queue[i]=(int) keys[i];
+        return queue;
+    }
+
+    /**
+     * Number of age intervals
+     */
+    int intervals(){
+        return queues.length-1;
+    }
+
+    /**
+     * @param queue queue position, {@link #intervals()} for persons outside intervals
+     * @return number of persons still to be allocated in the queue
+     */
+    int remaining(int queue){
+        return queues[queue].length-heads[queue];
+    }
+
+    /**
+     * Computes how many persons each queue gives to an allocation of {@code n} places:
+     * starting from the oldest interval {@link #PRIORITY} of the places left are
+     * given to the interval, the remaining places go to the oldest persons left.
+     *
+     * @param n number of places
+     * @param remaining persons left in each queue, updated by the method
+     * @return number of persons taken from each queue
+     */
+    static int[] quotas(int n, int[] remaining){
+        int[] taken=new int[remaining.length];
+        for(int interval=remaining.length-2;interval>=0;interval--){
+            taken[interval]=(int) Math.min((long) (n*PRIORITY), remaining[interval]);
+            remaining[interval]-=taken[interval];
+            n-=taken[interval];
+        }
+        for(int i=0;i<remaining.length && n>0;i++){
+            int queue=oldest(i, remaining.length);
+            int more=Math.min(n, remaining[queue]);
+            taken[queue]+=more;
+            remaining[queue]-=more;
+            n-=more;
+        }
+        return taken;
+    }
+
+    /**
+     * Position of the i-th queue from the oldest one: intervals from
+     * the last one backwards, then the persons outside intervals.
+     */
+    private static int oldest(int i, int queues){
+        return i<queues-1 ? queues-2-i : queues-1;
+    }
+
+    /**
+     * Positions of the persons reserved in each queue by an allocation
+     */
+    static class Reservation {
+        private final int[] starts;
+        private final int[] counts;
+        private Reservation(int[] starts, int[] counts) {
+            this.starts = starts;
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * Reserves {@code n} places advancing the queue heads,
+     * the reserved persons are retrieved with {@link #ids(Reservation)}.
+     *
+     * @param n number of places
+     * @return the reservation
+     */
+    Reservation reserve(int n){
+        int[] remaining=new int[queues.length];
+        for(int queue=0;queue<queues.length;queue++) remaining[queue]=remaining(queue);
+        int[] taken= n>0 ? quotas(n, remaining) : new int[queues.length];
+        int[] starts=heads.clone();
+        for(int queue=0;queue<queues.length;queue++) heads[queue]+=taken[queue];
+        return new Reservation(starts, taken);
+    }
+
+    /**
+     * Retrieves the persons of a reservation, oldest first; it does not
+     * modify the queues and can be called concurrently.
+     *
+     * @param reservation the reservation
+     * @return ids of the reserved persons
+     */
+    int[] ids(Reservation reservation){
+        int[] ids=new int[Arrays.stream(reservation.counts).sum()];
+        int count=0;
+        for(int i=0;i<queues.length;i++){
+            int queue=oldest(i, queues.length);
+            System.arraycopy(queues[queue], reservation.starts[queue], ids, count, reservation.counts[queue]);
+            count+=reservation.counts[queue];
+        }
+        return ids;
+    }
+
+    /**
+     * Allocates {@code n} places removing the persons from the queues
+     *
+     * @param n number of places
+     * @return ids of the allocated persons
+     */
+    int[] allocate(int n){
+        return ids(reserve(n));
+    }
+}
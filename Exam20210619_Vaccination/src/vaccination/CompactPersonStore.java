@@ -0,0 +1,151 @@
+package vaccination;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Columnar person storage.
+ * <p>
+ * Birth years and packed allocations are kept in primitive arrays indexed by
+ * person id, SSNs are stored as UTF-8 bytes in a single array, and first and
+ * last names are references to a pool of distinct names. SSNs are mapped to
+ * ids through an open-addressing hash table with linear probing.
+ */
+class CompactPersonStore implements PersonStore {
+    private static final int INITIAL_CAPACITY=1024;
+    private static final VarHandle SLOT= MethodHandles.arrayElementVarHandle(int[].class);
+    private int size=0;
+    private int[] years= new int[INITIAL_CAPACITY];
+    private int[] firsts= new int[INITIAL_CAPACITY];
+    private int[] lasts= new int[INITIAL_CAPACITY];
+    private int[] allocations= new int[INITIAL_CAPACITY];
+    private int[] ssnOffsets= new int[INITIAL_CAPACITY+1];
+    private byte[] ssnBytes= new byte[16*INITIAL_CAPACITY];
+    private int[] table= new int[2*INITIAL_CAPACITY];
+    private final List<String> names= new ArrayList<>();
+    private final Map<String,Integer> nameIds= new HashMap<>();
+
+    @Override
+    public int add(String ssn, String first, String last, int year) {
+        byte[] key=ssn.getBytes(StandardCharsets.UTF_8);
+        int slot=find(key);
+        if(table[slot]!=0) return NONE;
+        if(size==years.length) grow();
+        int id=size++;
+        years[id]=year;
+        firsts[id]=name(first);
+        lasts[id]=name(last);
+        allocations[id]=NONE;
+        int offset=ssnOffsets[id];
+        if(offset+key.length>ssnBytes.length) ssnBytes=Arrays.copyOf(ssnBytes, Math.max(2*ssnBytes.length, offset+key.length));
+        System.arraycopy(key, 0, ssnBytes, offset, key.length);
+        ssnOffsets[id+1]=offset+key.length;
+        table[slot]=id+1;
+        if(2*size>table.length) rehash();
+        return id;
+    }
+
+    private int name(String name){
+        Integer id=nameIds.get(name);
+        if(id==null){
+            id=names.size();
+            names.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    private void grow(){
+        int capacity=2*years.length;
+        years=Arrays.copyOf(years, capacity);
+        firsts=Arrays.copyOf(firsts, capacity);
+        lasts=Arrays.copyOf(lasts, capacity);
+        allocations=Arrays.copyOf(allocations, capacity);
+        ssnOffsets=Arrays.copyOf(ssnOffsets, capacity+1);
+    }
+
+    private void rehash(){
+        table=new int[2*table.length];
+        for(int id=0;id<size;id++){
+            int slot=hash(ssnBytes, ssnOffsets[id], ssnOffsets[id+1]) & (table.length-1);
+            while(table[slot]!=0) slot=(slot+1) & (table.length-1);
+            table[slot]=id+1;
+        }
+    }
+
+    private static int hash(byte[] bytes, int from, int to){
+        int h=1;
+        for(int i=from;i<to;i++) h=31*h+bytes[i];
+        return h ^ (h>>>16);
+    }
+
+    /**
+     * @return the slot holding the key, or the empty slot where it should be added
+     */
+    private int find(byte[] key){
+        int slot=hash(key, 0, key.length) & (table.length-1);
+        while(table[slot]!=0 && !matches(table[slot]-1, key)) slot=(slot+1) & (table.length-1);
+        return slot;
+    }
+
+    private boolean matches(int id, byte[] key){
+        return Arrays.equals(ssnBytes, ssnOffsets[id], ssnOffsets[id+1], key, 0, key.length);
+    }
+
+    @Override
+    public int idOf(String ssn) {
+        return table[find(ssn.getBytes(StandardCharsets.UTF_8))]-1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSsn(int id) {
+        return new String(ssnBytes, ssnOffsets[id], ssnOffsets[id+1]-ssnOffsets[id], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getFirst(int id) {
+        return names.get(firsts[id]);
+    }
+
+    @Override
+    public String getLast(int id) {
+        return names.get(lasts[id]);
+    }
+
+    @Override
+    public int getYear(int id) {
+        return years[id];
+    }
+
+    @Override
+    public void allocate(int id, int hub, int day) {
+        SLOT.setVolatile(allocations, id, PersonStore.allocation(hub, day));
+    }
+
+    @Override
+    public boolean claim(int id, int hub, int day) {
+        return SLOT.compareAndSet(allocations, id, NONE, PersonStore.allocation(hub, day));
+    }
+
+    @Override
+    public int getHub(int id) {
+        return PersonStore.hubOf((int) SLOT.getVolatile(allocations, id));
+    }
+
+    @Override
+    public int getDay(int id) {
+        return PersonStore.dayOf((int) SLOT.getVolatile(allocations, id));
+    }
+
+    @Override
+    public void clearAllocation() {
+        Arrays.fill(allocations, 0, size, NONE);
+    }
+}
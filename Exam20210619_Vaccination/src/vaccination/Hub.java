@@ -2,11 +2,13 @@ package vaccination;
 
 public class Hub {
     private String name;
+    private int id;
     private int doctors;
     private int nurses;
     private int other;
-    public Hub(String name) {
+    public Hub(String name, int id) {
         this.name = name;
+        this.id = id;
         this.doctors=0;
         this.nurses=0;
         this.other=0;
@@ -14,6 +16,9 @@ public class Hub {
     public String getName() {
         return name;
     }
+    public int getId() {
+        return id;
+    }
     public int getDoctors() {
         return doctors;
     }
@@ -0,0 +1,78 @@
+package vaccination;
+
+import java.util.*;
+
+/**
+ * Person storage with a {@link Person} object for each person
+ */
+class ObjectPersonStore implements PersonStore {
+    private Map<String,Integer> idMap= new HashMap<>();
+    private List<Person> personList= new ArrayList<>();
+
+    @Override
+    public int add(String ssn, String first, String last, int year) {
+        return add(new Person(ssn, first, last, year));
+    }
+
+    @Override
+    public int add(Person person) {
+        if(idMap.putIfAbsent(person.getSsn(), personList.size())!=null) return NONE;
+        personList.add(person);
+        return personList.size()-1;
+    }
+
+    @Override
+    public int idOf(String ssn) {
+        return idMap.getOrDefault(ssn, NONE);
+    }
+
+    @Override
+    public int size() {
+        return personList.size();
+    }
+
+    @Override
+    public String getSsn(int id) {
+        return personList.get(id).getSsn();
+    }
+
+    @Override
+    public String getFirst(int id) {
+        return personList.get(id).getFirst();
+    }
+
+    @Override
+    public String getLast(int id) {
+        return personList.get(id).getLast();
+    }
+
+    @Override
+    public int getYear(int id) {
+        return personList.get(id).getYear();
+    }
+
+    @Override
+    public void allocate(int id, int hub, int day) {
+        personList.get(id).allocate(hub, day);
+    }
+
+    @Override
+    public boolean claim(int id, int hub, int day) {
+        return personList.get(id).claim(hub, day);
+    }
+
+    @Override
+    public int getHub(int id) {
+        return personList.get(id).getHub();
+    }
+
+    @Override
+    public int getDay(int id) {
+        return personList.get(id).getDay();
+    }
+
+    @Override
+    public void clearAllocation() {
+        for(Person person: personList) person.allocate(NONE, NONE);
+    }
+}
@@ -0,0 +1,132 @@
+package vaccination;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Chunked loader for the people CSV.
+ * <p>
+ * Reading, parsing and insertion form a pipeline: the calling thread reads
+ * chunks of lines, a pool of threads parses them, and a single thread inserts
+ * the parsed persons in file order, so duplicates and error notifications
+ * behave as in the sequential loading. The number of chunks read but not yet
+ * inserted is bounded to limit memory usage.
+ */
+class PeopleLoader {
+    static final int CHUNK_LINES=8192;
+    private final Vaccines vaccines;
+    private final BiConsumer<Integer,String> listener;
+    private final int threads;
+    private final int maxInFlight;
+
+    PeopleLoader(Vaccines vaccines, BiConsumer<Integer,String> listener, int threads) {
+        this.vaccines = vaccines;
+        this.listener = listener;
+        this.threads = threads;
+        this.maxInFlight = 2*threads;
+    }
+
+    private static class Chunk {
+        final int firstLine;
+        final String[] lines;
+        final Person[] persons;
+        Chunk(int firstLine, String[] lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+            this.persons = new Person[lines.length];
+        }
+    }
+
+    /**
+     * Loads the person lines, the header must have been already read.
+     *
+     * @param br reader positioned after the header
+     * @return number of lines read, including the header
+     * @throws IOException in case of IO error
+     */
+    long load(BufferedReader br) throws IOException {
+        ExecutorService parsers= Executors.newFixedThreadPool(threads);
+        ExecutorService inserter= Executors.newSingleThreadExecutor();
+        Semaphore inFlight= new Semaphore(maxInFlight);
+        List<Future<?>> insertions= new ArrayList<>();
+        int count=1;
+        try{
+            String[] lines;
+            while((lines=readChunk(br)).length>0){
+                Chunk chunk= new Chunk(count+1, lines);
+                count+=lines.length;
+                inFlight.acquire();
+                Future<Chunk> parsed= parsers.submit(()->parse(chunk));
+                insertions.add(inserter.submit(()->{
+                    try{
+                        insert(parsed.get());
+                    }finally{
+                        inFlight.release();
+                    }
+                    return null;
+                }));
+            }
+            for(Future<?> insertion: insertions) insertion.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("People loading interrupted");
+        }catch(ExecutionException e){
+            Throwable cause= e.getCause() instanceof ExecutionException ? e.getCause().getCause() : e.getCause();
+            if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if(cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }finally{
+            parsers.shutdownNow();
+            inserter.shutdownNow();
+        }
+        return count;
+    }
+
+    private static String[] readChunk(BufferedReader br) throws IOException {
+        List<String> lines= new ArrayList<>(CHUNK_LINES);
+        String line;
+        while(lines.size()<CHUNK_LINES && (line=br.readLine())!=null) lines.add(line);
+        return lines.toArray(new String[0]);
+    }
+
+    private static Chunk parse(Chunk chunk){
+        for(int i=0;i<chunk.lines.length;i++) chunk.persons[i]=parseLine(chunk.lines[i]);
+        return chunk;
+    }
+
+    /**
+     * Parses a line {@code SSN,LAST,FIRST,YEAR} without splitting it.
+     * Trailing empty fields are ignored, as by {@link String#split(String)}.
+     *
+     * @return the person, or {@code null} if the line is not valid
+     */
+    static Person parseLine(String line){
+        int c1=line.indexOf(',');
+        if(c1<0) return null;
+        int c2=line.indexOf(',', c1+1);
+        if(c2<0) return null;
+        int c3=line.indexOf(',', c2+1);
+        if(c3<0) return null;
+        int end=line.indexOf(',', c3+1);
+        if(end<0) end=line.length();
+        for(int i=end;i<line.length();i++) if(line.charAt(i)!=',') return null;
+        int year;
+        try{
+            year=Integer.parseInt(line, c3+1, end, 10);
+        }catch(NumberFormatException e){
+            return null;
+        }
+        return new Person(line.substring(0, c1), line.substring(c2+1, c3), line.substring(c1+1, c2), year);
+    }
+
+    private void insert(Chunk chunk){
+        for(int i=0;i<chunk.persons.length;i++){
+            Person person=chunk.persons[i];
+            if((person==null || !vaccines.addPerson(person)) && listener!=null) listener.accept(chunk.firstLine+i, chunk.lines[i]);
+        }
+    }
+}
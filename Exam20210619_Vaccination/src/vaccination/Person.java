@@ -1,14 +1,14 @@
 package vaccination;
 
-import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public class Person {
+    private static final AtomicIntegerFieldUpdater<Person> ALLOCATION= AtomicIntegerFieldUpdater.newUpdater(Person.class, "allocation");
     private final String ssn;
     private final String first;
     private final String last;
     private final int year;
-    private String hubname;
-    private int day;
+    private volatile int allocation=PersonStore.NONE;
     public Person(String ssn, String first, String last, int year) {
         this.ssn = ssn;
         this.first = first;
@@ -27,12 +27,20 @@ public class Person {
     public int getYear() {
         return year;
     }
+    public int getHub() {
+        return PersonStore.hubOf(allocation);
+    }
+    public int getDay() {
+        return PersonStore.dayOf(allocation);
+    }
     @Override
     public String toString(){
         return ssn+","+first+","+last;
     }
-    public void allocate(String hubname,int day){
-        this.hubname=hubname;
-        this.day=day;
+    public void allocate(int hub,int day){
+        this.allocation=PersonStore.allocation(hub, day);
+    }
+    public boolean claim(int hub,int day){
+        return ALLOCATION.compareAndSet(this, PersonStore.NONE, PersonStore.allocation(hub, day));
     }
 }
@@ -0,0 +1,80 @@
+package vaccination;
+
+/**
+ * Storage of the persons of a vaccination system.
+ * <p>
+ * Persons are identified by a dense id assigned in insertion order,
+ * starting from 0; indexes and allocation queues refer to persons by id.
+ * Allocations are stored as hub id and day of week packed in a single
+ * int slot per person, so that a person can be claimed with a compare-and-set.
+ */
+interface PersonStore {
+    int NONE=-1;
+
+    static int allocation(int hub, int day){
+        return hub==NONE ? NONE : hub<<3 | day;
+    }
+
+    static int hubOf(int allocation){
+        return allocation==NONE ? NONE : allocation>>>3;
+    }
+
+    static int dayOf(int allocation){
+        return allocation==NONE ? NONE : allocation & 7;
+    }
+
+    /**
+     * Adds a person
+     *
+     * @return the id of the new person or {@link #NONE} if the ssn is duplicate
+     */
+    int add(String ssn, String first, String last, int year);
+
+    default int add(Person person){
+        return add(person.getSsn(), person.getFirst(), person.getLast(), person.getYear());
+    }
+
+    /**
+     * @return the id of the person, {@link #NONE} if not found
+     */
+    int idOf(String ssn);
+
+    int size();
+
+    String getSsn(int id);
+
+    String getFirst(int id);
+
+    String getLast(int id);
+
+    int getYear(int id);
+
+    void allocate(int id, int hub, int day);
+
+    /**
+     * Atomically allocates a person that is not allocated yet,
+     * may be called concurrently for different persons
+     *
+     * @return {@code false} if the person was already allocated
+     */
+    boolean claim(int id, int hub, int day);
+
+    /**
+     * @return the hub the person is allocated to, {@link #NONE} if not allocated
+     */
+    int getHub(int id);
+
+    /**
+     * @return the day the person is allocated to, {@link #NONE} if not allocated
+     */
+    int getDay(int id);
+
+    default boolean isAllocated(int id){
+        return getHub(id)!=NONE;
+    }
+
+    /**
+     * Clears the allocation of all the persons
+     */
+    void clearAllocation();
+}
@@ -0,0 +1,63 @@
+package vaccination;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader of a snapshot file through memory mapping.
+ * <p>
+ * The file is mapped in windows of at most {@link #WINDOW} bytes, so that
+ * snapshots larger than 2GB can be read as well.
+ */
+class SnapshotReader implements AutoCloseable {
+    static final int WINDOW=1<<30;
+    private final FileChannel channel;
+    private final long size;
+    private long position=0;
+    private MappedByteBuffer buffer;
+
+    SnapshotReader(Path file) throws IOException {
+        this.channel=FileChannel.open(file, StandardOpenOption.READ);
+        this.size=channel.size();
+        map();
+    }
+
+    private void map() throws IOException {
+        buffer=channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size-position));
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if(buffer.remaining()>=bytes) return;
+        position+=buffer.position();
+        if(size-position<bytes) throw new IOException("Truncated snapshot");
+        map();
+    }
+
+    byte readByte() throws IOException {
+        ensure(1);
+        return buffer.get();
+    }
+
+    int readInt() throws IOException {
+        ensure(4);
+        return buffer.getInt();
+    }
+
+    String readString() throws IOException {
+        int length=readInt();
+        if(length<0 || length>WINDOW) throw new IOException("Invalid string in snapshot");
+        ensure(length);
+        byte[] bytes=new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,27 +1,61 @@
 package vaccination;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
-
-import org.junit.platform.engine.support.discovery.SelectorResolver.Match;
-
+import java.util.stream.IntStream;
 
 public class Vaccines {
 	public final static int CURRENT_YEAR=2021;
-	private Map<String,Person> personMap= new HashMap<>();
-	private List<String> intervalList= new ArrayList<>();
+	private static final int SNAPSHOT_MAGIC=0x56414343;
+	private static final int SNAPSHOT_VERSION=1;
+	private final Storage storage;
+	private PersonStore people;
+	private AgeIndex ageIndex= new AgeIndex();
 	private Map<String,Hub> hubMap= new HashMap<>();
 	private Map<Integer,Integer> hoursMap= new TreeMap<>();
 	private BiConsumer<Integer,String> listener= null;
-	private Set<Person> allocatedSet= new HashSet<>();
+	private AllocationEngine allocationEngine= null;
 	
 // R1
 
+	/**
+	 * Storage layouts for the persons
+	 */
+	public enum Storage {
+		/** a {@link Person} object for each person */
+		OBJECTS,
+		/** columnar primitive arrays, for large populations */
+		COMPACT
+	}
+
 	public Vaccines() {
+		this(Storage.OBJECTS);
+	}
+
+	/**
+	 * Creates a vaccination system storing persons with the given layout.
+	 * 
+	 * @param storage the storage layout
+	 */
+	public Vaccines(Storage storage) {
+		this.storage= storage;
+		this.people= newStore(storage);
+	}
+
+	private static PersonStore newStore(Storage storage) {
+		return storage==Storage.COMPACT ? new CompactPersonStore() : new ObjectPersonStore();
 	}
 
 	/**
@@ -36,8 +70,14 @@ public class Vaccines {
 	 * @return {@code false} if ssn is duplicate, 
 	 */
 	public boolean addPerson(String first, String last, String ssn, int year) {
-		if(personMap.containsKey(ssn)) return false;
-		personMap.put(ssn, new Person(ssn, first, last, year));
+		return addPerson(new Person(ssn, first, last, year));
+	}
+
+	boolean addPerson(Person person) {
+		int id=people.add(person);
+		if(id==PersonStore.NONE) return false;
+		ageIndex.add(id, person.getYear());
+		allocationEngine=null;
 		return true;
 	}
 	
@@ -47,7 +87,7 @@ public class Vaccines {
 	 * @return person count
 	 */
 	public int countPeople() {
-		return personMap.size();
+		return people.size();
 	}
 	
 	/**
@@ -59,8 +99,9 @@ public class Vaccines {
 	 * @return info about the person
 	 */
 	public String getPerson(String ssn) {
-		if(!personMap.containsKey(ssn)) return null;
-		return personMap.get(ssn).toString();
+		int id=people.idOf(ssn);
+		if(id==PersonStore.NONE) return null;
+		return people.getSsn(id)+","+people.getFirst(id)+","+people.getLast(id);
 	}
 	
 	
@@ -71,8 +112,9 @@ public class Vaccines {
 	 * @return age of person (in years)
 	 */
 	public int getAge(String ssn) {
-		if(!personMap.containsKey(ssn)) return -1;
-		return CURRENT_YEAR-personMap.get(ssn).getYear();
+		int id=people.idOf(ssn);
+		if(id==PersonStore.NONE) return -1;
+		return CURRENT_YEAR-people.getYear(id);
 	}
 
 	
@@ -88,12 +130,12 @@ public class Vaccines {
 	 * @param breaks the array of breaks
 	 */
 	public void setAgeIntervals(int... breaks) {
-		int initial=0;
-		for(int value: breaks){
-			intervalList.add(String.format("[%d,%d)", initial,value));
-			initial=value;
+		ageIndex= new AgeIndex(breaks);
+		for(int id=0;id<people.size();id++){
+			ageIndex.add(id, people.getYear(id));
+			if(people.isAllocated(id)) ageIndex.allocated(people.getYear(id));
 		}
-		intervalList.add(String.format("[%d,+)", initial));
+		allocationEngine=null;
 	}
 	
 	
@@ -107,7 +149,7 @@ public class Vaccines {
 	 * @return labels of the age intervals
 	 */
 	public Collection<String> getAgeIntervals(){
-		return intervalList;
+		return ageIndex.getLabels();
 	}
 	
 	
@@ -121,8 +163,10 @@ public class Vaccines {
 	 * @return collection of SSN of person in the age interval
 	 */
 	public Collection<String> getInInterval(String interval){
+		int position=ageIndex.indexOf(interval);
+		if(position>=0) return ageIndex.getBucket(position).mapToObj(people::getSsn).collect(Collectors.toList());
 		List<Integer> intervalValue=getintInterval(interval);
-		return personMap.values().stream().map(Person::getSsn).filter(ssn->getAge(ssn)>=intervalValue.get(0) &&  getAge(ssn)<intervalValue.get(1)).collect(Collectors.toList());
+		return IntStream.range(0, people.size()).filter(id->CURRENT_YEAR-people.getYear(id)>=intervalValue.get(0) && CURRENT_YEAR-people.getYear(id)<intervalValue.get(1)).mapToObj(people::getSsn).collect(Collectors.toList());
 	}
 	
 	private List<Integer> getintInterval(String interval){
@@ -146,7 +190,7 @@ public class Vaccines {
 	 */
 	public void defineHub(String name) throws VaccineException {
 		if(hubMap.containsKey(name)) throw new VaccineException();
-		hubMap.put(name, new Hub(name));
+		hubMap.put(name, new Hub(name, hubMap.size()));
 	}
 	
 	/**
@@ -239,6 +283,34 @@ public class Vaccines {
 		br.close();
 		return count;
 	}
+
+	/**
+	 * Load people information stored in CSV format using
+	 * several threads.
+	 * <p>
+	 * Lines are read in chunks that are parsed in parallel and then
+	 * added in file order, so duplicates and errors are handled
+	 * as in {@link #loadPeople(Reader)} and the listener is notified
+	 * in line-number order. Lines with an invalid year are notified too.
+	 * At most {@code 2*threads} chunks are kept in memory at any time.
+	 * 
+	 * @param people {@code Reader} for the CSV content
+	 * @param threads number of parsing threads
+	 * @return the same value as {@link #loadPeople(Reader)}
+	 * @throws IOException in case of IO error
+	 * @throws VaccineException in case of error in the header
+	 */
+	public long loadPeople(Reader people, int threads) throws IOException, VaccineException {
+		if(threads<=0) throw new VaccineException();
+		try(BufferedReader br = new BufferedReader(people)){
+			String line=br.readLine();
+			if(line==null || !line.equals("SSN,LAST,FIRST,YEAR")) {
+				if(this.listener!=null) this.listener.accept(1, line);
+				throw new VaccineException();
+			}
+			return new PeopleLoader(this, listener, threads).load(br);
+		}
+	}
 	
 	// R4
 	/**
@@ -329,28 +401,27 @@ public class Vaccines {
 	 * @return the list of daily allocations
 	 */
 	public List<String> allocate(String hubName, int day){
-		int n=getDailyAvailable(hubName, day);
-		List<Person> allocatedPerson;
-		List<String> totalAllocated= new ArrayList<>();
-		for(String interval: intervalList.stream().sorted((s1,s2)-> s2.compareTo(s1)).collect(Collectors.toList())){
-			allocatedPerson=getInInterval(interval).stream().map(ssn->personMap.get(ssn)).filter(person->!allocatedSet.contains(person)).limit((long) (n*0.4)).collect(Collectors.toList());
-			for(Person person:allocatedPerson){
-				allocatedSet.add(person);
-				person.allocate(hubName, day);
-				totalAllocated.add(person.getSsn());
-			}
-			n-=allocatedPerson.size();
-		}
-		if(n!=0){
-			allocatedPerson=personMap.values().stream().filter(person->!allocatedSet.contains(person)).sorted(Comparator.comparingInt((Person person)-> getAge(person.getSsn())).reversed()).limit(n).collect(Collectors.toList());
-			for(Person person:allocatedPerson){
-				allocatedSet.add(person);
-				person.allocate(hubName, day);
-				totalAllocated.add(person.getSsn());
-			}
+		int[] ids=getAllocationEngine().allocate(getDailyAvailable(hubName, day));
+		if(ids.length==0) return new ArrayList<>();
+		return claim(ids, hubMap.get(hubName).getId(), day);
+	}
+
+	private List<String> claim(int[] ids, int hub, int day){
+		List<String> totalAllocated= new ArrayList<>(ids.length);
+		int[] counts= new int[ageIndex.size()+1];
+		for(int id:ids){
+			if(!people.claim(id, hub, day)) throw new IllegalStateException("Person allocated twice: "+people.getSsn(id));
+			counts[ageIndex.counterOf(people.getYear(id))]++;
+			totalAllocated.add(people.getSsn(id));
 		}
+		ageIndex.allocated(counts);
 		return totalAllocated;
 	}
+
+	private AllocationEngine getAllocationEngine(){
+		if(allocationEngine==null) allocationEngine= new AllocationEngine(ageIndex, people);
+		return allocationEngine;
+	}
 	
 	/**
 	 * Removes all people from allocation lists and 
@@ -358,7 +429,9 @@ public class Vaccines {
 	 * 
 	 */
 	public void clearAllocation() {
-		this.allocatedSet.clear();
+		this.people.clearAllocation();
+		this.ageIndex.clearAllocated();
+		this.allocationEngine=null;
 	}
 	
 	/**
@@ -382,6 +455,51 @@ public class Vaccines {
 	public List<Map<String,List<String>>> weekAllocate(){
 		return hoursMap.entrySet().stream().map(entry->hubMap.values().stream().collect(Collectors.toMap(Hub::getName,hub->this.allocate(hub.getName(), entry.getKey())))).collect(Collectors.toList());
 	}
+
+	/**
+	 * Computes the general allocation plan for the week
+	 * running the hubs concurrently.
+	 * <p>
+	 * The places of every hub and day are reserved first, in the
+	 * same order as {@link #weekAllocate()}, then the persons are
+	 * claimed by one task per hub on the given executor.
+	 * The result is the same as {@link #weekAllocate()}.
+	 * 
+	 * @param executor the executor running the hub tasks
+	 * @return the list of daily allocations
+	 */
+	public List<Map<String,List<String>>> weekAllocate(Executor executor){
+		AllocationEngine engine=getAllocationEngine();
+		List<Hub> hubs= new ArrayList<>(hubMap.values());
+		List<Integer> days= new ArrayList<>(hoursMap.keySet());
+		AllocationEngine.Reservation[][] plan= new AllocationEngine.Reservation[hubs.size()][days.size()];
+		for(int d=0;d<days.size();d++){
+			for(int h=0;h<hubs.size();h++) plan[h][d]=engine.reserve(getDailyAvailable(hubs.get(h).getName(), days.get(d)));
+		}
+		List<CompletableFuture<List<List<String>>>> tasks= new ArrayList<>();
+		for(int h=0;h<hubs.size();h++){
+			Hub hub=hubs.get(h);
+			AllocationEngine.Reservation[] hubPlan=plan[h];
+			tasks.add(CompletableFuture.supplyAsync(()->{
+				List<List<String>> hubAllocated= new ArrayList<>();
+				for(int d=0;d<days.size();d++) hubAllocated.add(claim(engine.ids(hubPlan[d]), hub.getId(), days.get(d)));
+				return hubAllocated;
+			}, executor));
+		}
+		List<Map<String,List<String>>> week= new ArrayList<>();
+		for(int d=0;d<days.size();d++) week.add(new HashMap<>());
+		for(int h=0;h<hubs.size();h++){
+			List<List<String>> hubAllocated;
+			try{
+				hubAllocated=tasks.get(h).join();
+			}catch(CompletionException e){
+				if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+				throw e;
+			}
+			for(int d=0;d<days.size();d++) week.get(d).put(hubs.get(h).getName(), hubAllocated.get(d));
+		}
+		return week;
+	}
 	
 	// R5
 	/**
@@ -392,7 +510,7 @@ public class Vaccines {
 	 * @return proportion of allocated people
 	 */
 	public double propAllocated() {
-		return allocatedSet.size()/(double)personMap.size();
+		return ageIndex.countAllocated()/(double)people.size();
 	}
 	
 	/**
@@ -406,7 +524,9 @@ public class Vaccines {
 	 * @return proportion of allocated people by age interval
 	 */
 	public Map<String,Double> propAllocatedAge(){
-		return intervalList.stream().collect(Collectors.toMap(interval->interval, interval->{List<String> agelist=new ArrayList<>(getInInterval(interval)); return (double) agelist.stream().filter(person->allocatedSet.contains(personMap.get(person))).count()/ personMap.size();}));
+		Map<String,Double> result= new HashMap<>();
+		for(int interval=0;interval<ageIndex.size();interval++) result.put(ageIndex.getLabel(interval), ageIndex.countAllocated(interval)/(double)people.size());
+		return result;
 	}
 
 	/**
@@ -420,7 +540,10 @@ public class Vaccines {
 	 * @return
 	 */
 	public Map<String,Double> distributionAllocated(){
-		return intervalList.stream().collect(Collectors.toMap(interval->interval, interval->{List<String> ininterval=new ArrayList<>(getInInterval(interval)); return (double)ininterval.stream().filter(ssn->allocatedSet.stream().map(Person::getSsn).collect(Collectors.toSet()).contains(ssn)).count()/allocatedSet.size();}));
+		double allocated=ageIndex.countAllocated();
+		Map<String,Double> result= new HashMap<>();
+		for(int interval=0;interval<ageIndex.size();interval++) result.put(ageIndex.getLabel(interval), ageIndex.countAllocated(interval)/allocated);
+		return result;
 	}
 
 	// R6
@@ -437,4 +560,106 @@ public class Vaccines {
 		this.listener=listener;
 	}
 
+	// Snapshots
+	/**
+	 * Saves people, hubs with their staff, working hours, age intervals
+	 * and current allocations to a binary snapshot file.
+	 * <p>
+	 * The load listener is not saved.
+	 * 
+	 * @param file the snapshot file, overwritten if existing
+	 * @throws IOException in case of IO error
+	 */
+	public void saveSnapshot(Path file) throws IOException {
+		try(DataOutputStream out= new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1<<16))){
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(SNAPSHOT_VERSION);
+			int[] breaks=ageIndex.getBreaks();
+			out.writeInt(breaks==null ? -1 : breaks.length);
+			if(breaks!=null) for(int value: breaks) out.writeInt(value);
+			out.writeInt(hoursMap.size());
+			for(int hours: hoursMap.values()) out.writeInt(hours);
+			List<Hub> hubs=hubMap.values().stream().sorted(Comparator.comparingInt(Hub::getId)).collect(Collectors.toList());
+			out.writeInt(hubs.size());
+			for(Hub hub: hubs){
+				writeString(out, hub.getName());
+				out.writeInt(hub.getDoctors());
+				out.writeInt(hub.getNurses());
+				out.writeInt(hub.getOther());
+			}
+			out.writeInt(people.size());
+			for(int id=0;id<people.size();id++){
+				writeString(out, people.getSsn(id));
+				writeString(out, people.getFirst(id));
+				writeString(out, people.getLast(id));
+				out.writeInt(people.getYear(id));
+				out.writeInt(people.getHub(id));
+				out.writeByte(people.getDay(id));
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes=value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Replaces the state of the system with the one saved
+	 * by {@link #saveSnapshot}.
+	 * <p>
+	 * The file is read through memory mapping and the indexes
+	 * are rebuilt while reading; the storage layout of this
+	 * system is kept. In case of error the state is not changed.
+	 * 
+	 * @param file the snapshot file
+	 * @throws IOException in case of IO error
+	 * @throws VaccineException if the file is not a valid snapshot
+	 */
+	public void loadSnapshot(Path file) throws IOException, VaccineException {
+		try(SnapshotReader in= new SnapshotReader(file)){
+			if(in.readInt()!=SNAPSHOT_MAGIC || in.readInt()!=SNAPSHOT_VERSION) throw new VaccineException("Invalid snapshot");
+			int nbreaks=in.readInt();
+			AgeIndex index= new AgeIndex();
+			if(nbreaks>=0){
+				int[] breaks= new int[nbreaks];
+				for(int i=0;i<nbreaks;i++) breaks[i]=in.readInt();
+				index= new AgeIndex(breaks);
+			}
+			Map<Integer,Integer> hours= new TreeMap<>();
+			int ndays=in.readInt();
+			for(int day=0;day<ndays;day++) hours.put(day, in.readInt());
+			Map<String,Hub> hubs= new HashMap<>();
+			int nhubs=in.readInt();
+			for(int id=0;id<nhubs;id++){
+				Hub hub= new Hub(in.readString(), id);
+				hub.setStaff(in.readInt(), in.readInt(), in.readInt());
+				hubs.put(hub.getName(), hub);
+			}
+			PersonStore store=newStore(storage);
+			int npeople=in.readInt();
+			for(int i=0;i<npeople;i++){
+				String ssn=in.readString();
+				String first=in.readString();
+				String last=in.readString();
+				int year=in.readInt();
+				int hub=in.readInt();
+				int day=in.readByte();
+				int id=store.add(ssn, first, last, year);
+				if(id==PersonStore.NONE) throw new VaccineException("Invalid snapshot");
+				index.add(id, year);
+				if(hub!=PersonStore.NONE){
+					store.allocate(id, hub, day);
+					index.allocated(year);
+				}
+			}
+			this.ageIndex=index;
+			this.hoursMap=hours;
+			this.hubMap=hubs;
+			this.people=store;
+			this.allocationEngine=null;
+		}
+	}
+
 }
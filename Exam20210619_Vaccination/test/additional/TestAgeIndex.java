@@ -0,0 +1,91 @@
+package additional;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import vaccination.*;
+
+public class TestAgeIndex {
+
+    private final Map<String,Integer> ages = new HashMap<>();
+
+    private void addPeople(Vaccines v, Random rnd, int from, int to) {
+        for(int i=from; i<to; ++i) {
+            int year = 1900 + rnd.nextInt(126);
+            String ssn = "SSN" + i;
+            assertTrue(v.addPerson("First" + i, "Last" + i, ssn, year));
+            ages.put(ssn, Vaccines.CURRENT_YEAR - year);
+        }
+    }
+
+    /**
+     * The persons in the interval, as the scan over all persons did
+     */
+    private Set<String> scan(int lower, int upper) {
+        Set<String> found = new HashSet<>();
+        for(Map.Entry<String,Integer> e : ages.entrySet()) {
+            if(e.getValue()>=lower && e.getValue()<upper) found.add(e.getKey());
+        }
+        return found;
+    }
+
+    private void check(Vaccines v, int... breaks) {
+        int lower = 0;
+        for(int b : breaks) {
+            assertEquals(scan(lower, b), new HashSet<>(v.getInInterval(String.format("[%d,%d)", lower, b))));
+            lower = b;
+        }
+        assertEquals(scan(lower, Integer.MAX_VALUE), new HashSet<>(v.getInInterval(String.format("[%d,+)", lower))));
+    }
+
+    @Test
+    public void testSameAsScan() throws Exception {
+        for(Vaccines.Storage storage : Vaccines.Storage.values()) {
+            ages.clear();
+            Vaccines v = new Vaccines(storage);
+            Random rnd = new Random(7);
+            addPeople(v, rnd, 0, 2000);
+            v.setAgeIntervals(20, 40, 60, 80);
+            check(v, 20, 40, 60, 80);
+
+            // persons added and loaded after the intervals are set
+            addPeople(v, rnd, 2000, 3000);
+            StringBuilder csv = new StringBuilder("SSN,LAST,FIRST,YEAR\n");
+            for(int i=3000; i<3500; ++i) {
+                int year = 1900 + rnd.nextInt(126);
+                csv.append("SSN").append(i).append(",Last,First,").append(year).append('\n');
+                ages.put("SSN" + i, Vaccines.CURRENT_YEAR - year);
+            }
+            v.loadPeople(new StringReader(csv.toString()));
+            assertEquals(3500, v.countPeople());
+            check(v, 20, 40, 60, 80);
+
+            // new intervals, with breaks at equal ages
+            v.setAgeIntervals(10, 10, 65);
+            check(v, 10, 10, 65);
+        }
+    }
+
+    @Test
+    public void testUnknownLabel() {
+        Vaccines v = new Vaccines();
+        Random rnd = new Random(3);
+        addPeople(v, rnd, 0, 1000);
+        // no intervals defined yet
+        assertEquals(scan(30, 50), new HashSet<>(v.getInInterval("[30,50)")));
+        v.setAgeIntervals(40, 60);
+        assertEquals(scan(15, 35), new HashSet<>(v.getInInterval("[15,35)")));
+        assertEquals(scan(70, Integer.MAX_VALUE), new HashSet<>(v.getInInterval("[70,+)")));
+        assertEquals(scan(60, Integer.MAX_VALUE), new HashSet<>(v.getInInterval("[60,+)")));
+        assertEquals(ages.size(), v.getInInterval("[0,40)").size() + v.getInInterval("[40,60)").size()
+                + v.getInInterval("[60,+)").size() + scan(Integer.MIN_VALUE, 0).size());
+    }
+}
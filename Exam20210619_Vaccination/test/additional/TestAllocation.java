@@ -0,0 +1,140 @@
+package additional;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import vaccination.*;
+
+public class TestAllocation {
+
+    private static final int[] BREAKS = {30, 50, 70};
+    private Vaccines v;
+    private final List<String> ssns = new ArrayList<>();
+    private final Map<String,Integer> years = new HashMap<>();
+    private final Map<String,Integer> order = new HashMap<>();
+
+    @Before
+    public void setUp() throws VaccineException {
+        v = new Vaccines();
+        Random rnd = new Random(19);
+        // few old persons, so that the oldest intervals run out
+        for(int i=0; i<3000; ++i) {
+            int year = i%10==0 ? 1920 + rnd.nextInt(40) : 1960 + rnd.nextInt(65);
+            String ssn = "SSN" + i;
+            v.addPerson("First", "Last", ssn, year);
+            order.put(ssn, ssns.size());
+            ssns.add(ssn);
+            years.put(ssn, year);
+        }
+        v.setAgeIntervals(BREAKS);
+        v.defineHub("Hub A");
+        v.defineHub("Hub B");
+        v.defineHub("Hub C");
+        v.setStaff("Hub A", 3, 4, 2);
+        v.setStaff("Hub B", 1, 1, 1);
+        v.setStaff("Hub C", 5, 2, 3);
+        v.setHours(4, 6, 6, 6, 6, 6, 2);
+    }
+
+    /**
+     * The allocation as computed before the allocation engine: for each interval,
+     * oldest first, 40% of the places left go to the persons not yet allocated in
+     * the interval, then the places left go to the oldest persons not yet allocated.
+     * Persons of the same age are taken in insertion order.
+     */
+    private class Reference {
+        private final Set<String> allocated = new HashSet<>();
+
+        List<String> allocate(int n) {
+            List<String> result = new ArrayList<>();
+            Comparator<String> oldest = Comparator.comparingInt((String ssn)->years.get(ssn)).thenComparingInt(order::get);
+            for(int interval=BREAKS.length; interval>=0; --interval) {
+                int lower = interval==0 ? 0 : BREAKS[interval-1];
+                int upper = interval==BREAKS.length ? Integer.MAX_VALUE : BREAKS[interval];
+                List<String> taken = ssns.stream().filter(ssn->!allocated.contains(ssn))
+                        .filter(ssn->age(ssn)>=lower && age(ssn)<upper)
+                        .sorted(oldest).limit((long) (n*0.4)).collect(Collectors.toList());
+                allocated.addAll(taken);
+                result.addAll(taken);
+                n -= taken.size();
+            }
+            List<String> taken = ssns.stream().filter(ssn->!allocated.contains(ssn)).sorted(oldest).limit(n).collect(Collectors.toList());
+            allocated.addAll(taken);
+            result.addAll(taken);
+            return result;
+        }
+
+        private int age(String ssn) {
+            return Vaccines.CURRENT_YEAR - years.get(ssn);
+        }
+    }
+
+    @Test
+    public void testSameAsReference() {
+        Reference reference = new Reference();
+        Random rnd = new Random(23);
+        List<String> hubs = new ArrayList<>(v.getHubs());
+        for(int i=0; i<20; ++i) {
+            String hub = hubs.get(rnd.nextInt(hubs.size()));
+            int day = rnd.nextInt(7);
+            List<String> expected = reference.allocate(v.getDailyAvailable(hub, day));
+            List<String> allocated = v.allocate(hub, day);
+            assertEquals(expected.size(), allocated.size());
+            assertEquals("Allocation " + i, new HashSet<>(expected), new HashSet<>(allocated));
+        }
+    }
+
+    @Test
+    public void testWeekSameAsReference() {
+        Reference reference = new Reference();
+        List<Map<String,List<String>>> week = v.weekAllocate();
+        assertEquals(7, week.size());
+        for(int day=0; day<7; ++day) {
+            for(String hub : v.getHubs()) {
+                List<String> expected = reference.allocate(v.getDailyAvailable(hub, day));
+                assertEquals("Day " + day + " " + hub, new HashSet<>(expected), new HashSet<>(week.get(day).get(hub)));
+            }
+        }
+    }
+
+    @Test
+    public void testRepeatable() {
+        List<String> first = v.allocate("Hub A", 1);
+        List<String> second = v.allocate("Hub A", 1);
+        v.clearAllocation();
+        assertEquals(first, v.allocate("Hub A", 1));
+        assertEquals(second, v.allocate("Hub A", 1));
+
+        v.clearAllocation();
+        List<Map<String,List<String>>> week = v.weekAllocate();
+        v.clearAllocation();
+        assertEquals(week, v.weekAllocate());
+
+        v.clearAllocation();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertEquals(week, v.weekAllocate(executor));
+        } finally {
+            executor.shutdown();
+        }
+
+        // a person added after a clear takes part in the next allocation
+        v.clearAllocation();
+        v.addPerson("First", "Last", "OLDEST", 1910);
+        assertTrue(v.allocate("Hub B", 0).contains("OLDEST"));
+    }
+}
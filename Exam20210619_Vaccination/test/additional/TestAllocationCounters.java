@@ -0,0 +1,92 @@
+package additional;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import vaccination.*;
+
+public class TestAllocationCounters {
+
+    private Vaccines v;
+    private final Set<String> allocated = new HashSet<>();
+    private int people;
+
+    @Before
+    public void setUp() throws VaccineException {
+        v = new Vaccines();
+        Random rnd = new Random(29);
+        people = 2000;
+        for(int i=0; i<people; ++i) v.addPerson("First", "Last", "SSN" + i, 1920 + rnd.nextInt(106));
+        v.setAgeIntervals(25, 45, 65);
+        v.defineHub("Hub A");
+        v.defineHub("Hub B");
+        v.setStaff("Hub A", 2, 3, 1);
+        v.setStaff("Hub B", 4, 4, 4);
+        v.setHours(4, 4, 4, 4, 4, 4, 4);
+    }
+
+    /**
+     * Checks the proportions against a recount of the allocated persons in each interval
+     */
+    private void check() {
+        assertEquals(allocated.size()/(double) people, v.propAllocated(), 1e-12);
+        Map<String,Double> byAge = v.propAllocatedAge();
+        Map<String,Double> distribution = v.distributionAllocated();
+        assertEquals(new HashSet<>(v.getAgeIntervals()), byAge.keySet());
+        assertEquals(new HashSet<>(v.getAgeIntervals()), distribution.keySet());
+        for(String interval : v.getAgeIntervals()) {
+            long count = v.getInInterval(interval).stream().filter(allocated::contains).count();
+            assertEquals(interval, count/(double) people, byAge.get(interval), 1e-12);
+            if(allocated.isEmpty()) assertTrue(interval, distribution.get(interval).isNaN());
+            else assertEquals(interval, count/(double) allocated.size(), distribution.get(interval), 1e-12);
+        }
+    }
+
+    @Test
+    public void testCounters() {
+        check();
+        allocated.addAll(v.allocate("Hub A", 0));
+        allocated.addAll(v.allocate("Hub B", 0));
+        allocated.addAll(v.allocate("Hub A", 3));
+        check();
+
+        // new intervals recount the persons already allocated
+        v.setAgeIntervals(18, 60);
+        check();
+        allocated.addAll(v.allocate("Hub B", 5));
+        check();
+
+        v.clearAllocation();
+        allocated.clear();
+        check();
+
+        for(Map<String,List<String>> day : v.weekAllocate()) {
+            for(List<String> hub : day.values()) allocated.addAll(hub);
+        }
+        check();
+        v.setAgeIntervals(25, 45, 65);
+        check();
+    }
+
+    @Test
+    public void testPersonsOutsideIntervals() throws VaccineException {
+        v.setStaff("Hub B", 20, 20, 20);
+        // born after the current year, counted as allocated but in no interval
+        for(int i=0; i<50; ++i) v.addPerson("First", "Last", "YOUNG" + i, Vaccines.CURRENT_YEAR + 1);
+        people += 50;
+        for(int day=0; day<7; ++day) {
+            allocated.addAll(v.allocate("Hub A", day));
+            allocated.addAll(v.allocate("Hub B", day));
+        }
+        assertEquals(people, allocated.size());
+        check();
+    }
+}
@@ -0,0 +1,59 @@
+package additional;
+
+import static additional.TestUtils.generatePersons;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import vaccination.VaccineException;
+import vaccination.Vaccines;
+
+public class TestCompactStorage {
+	private Vaccines v;
+	private Vaccines c;
+
+	@Before
+	public void setUp() throws VaccineException {
+		v = new Vaccines();
+		c = new Vaccines(Vaccines.Storage.COMPACT);
+		for(Vaccines s : List.of(v, c)) {
+			s.addPerson("Mario", "Draghi", "MRIDRG47P23H501K", 1947);
+			s.addPerson("Luca", "Melone", "MLNLCU50Z403RE", 1950);
+		}
+	}
+
+	@Test
+	public void testPersons() {
+		assertFalse("Duplicate SSN should be rejected", c.addPerson("Mario", "Rossi", "MRIDRG47P23H501K", 1960));
+		assertEquals(2, c.countPeople());
+		assertEquals(v.getPerson("MRIDRG47P23H501K"), c.getPerson("MRIDRG47P23H501K"));
+		assertEquals(71, c.getAge("MLNLCU50Z403RE"));
+		assertNull(c.getPerson("XXX"));
+		assertEquals(-1, c.getAge("XXX"));
+	}
+
+	@Test
+	public void testSameAllocation() throws VaccineException {
+		Set<String> persons = generatePersons(20000);
+		for(Vaccines s : List.of(v, c)) {
+			for(String p : persons) {
+				String[] fields = p.split(",");
+				s.addPerson(fields[2], fields[1], fields[0], Integer.parseInt(fields[3]));
+			}
+			s.setAgeIntervals(30,50,60,70);
+			s.defineHub("Hub 1");
+			s.defineHub("Hub 2");
+			s.setStaff("Hub 1", 7, 6, 4);
+			s.setStaff("Hub 2", 4, 3, 2);
+			s.setHours(8,8,8,8,8,6,4);
+		}
+		List<Map<String,List<String>>> expected = v.weekAllocate();
+		assertEquals(expected, c.weekAllocate());
+		assertEquals(v.distributionAllocated(), c.distributionAllocated());
+	}
+}
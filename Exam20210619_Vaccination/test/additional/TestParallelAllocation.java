@@ -0,0 +1,73 @@
+package additional;
+
+import static additional.TestUtils.generatePersons;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import vaccination.VaccineException;
+import vaccination.Vaccines;
+
+public class TestParallelAllocation {
+	private Set<String> persons;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		persons = generatePersons(20000);
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	private Vaccines create(Vaccines.Storage storage) throws VaccineException {
+		Vaccines v = new Vaccines(storage);
+		for(String p : persons) {
+			String[] fields = p.split(",");
+			v.addPerson(fields[2], fields[1], fields[0], Integer.parseInt(fields[3]));
+		}
+    	v.setAgeIntervals(30,50,60,70);
+    	for(int i=1; i<=6; ++i) {
+    		v.defineHub("Hub " + i);
+    		v.setStaff("Hub " + i, i, i+1, i);
+    	}
+    	v.setHours(8,8,8,8,8,6,4);
+    	return v;
+	}
+
+	@Test
+	public void testSameAsSequential() throws VaccineException {
+		for(Vaccines.Storage storage : Vaccines.Storage.values()) {
+			List<Map<String,List<String>>> expected = create(storage).weekAllocate();
+
+			Vaccines v = create(storage);
+			assertEquals(expected, v.weekAllocate(executor));
+			double distribution = v.distributionAllocated().get("[70,+)");
+
+			v.clearAllocation();
+			assertEquals("After clear allocate the same people should be allocated",
+						 expected, v.weekAllocate(executor));
+			assertEquals(distribution, v.distributionAllocated().get("[70,+)"), 0.0);
+		}
+	}
+
+	@Test
+	public void testAfterDailyAllocation() throws VaccineException {
+		Vaccines s = create(Vaccines.Storage.OBJECTS);
+		Vaccines p = create(Vaccines.Storage.OBJECTS);
+		assertEquals(s.allocate("Hub 1", 0), p.allocate("Hub 1", 0));
+		assertEquals(s.weekAllocate(), p.weekAllocate(executor));
+		assertEquals(s.propAllocated(), p.propAllocated(), 0.0);
+	}
+}
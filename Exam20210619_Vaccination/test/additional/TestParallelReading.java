@@ -0,0 +1,107 @@
+package additional;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import static additional.TestUtils.*;
+
+import vaccination.VaccineException;
+import vaccination.Vaccines;
+
+public class TestParallelReading {
+	private static final int NUM_PERSONS = 20000;
+	private Vaccines v;
+	private String fileContent;
+
+	@Before
+	public void setUp() throws VaccineException {
+		v = new Vaccines();
+    	ArrayList<String> lines=new ArrayList<>();
+    	lines.add("SSN,LAST,FIRST,YEAR");
+    	lines.addAll(generatePersons(NUM_PERSONS));
+    	fileContent = lines.stream().collect(Collectors.joining("\n"));
+	}
+
+	@Test
+	public void testLoadPeople() throws IOException, VaccineException {
+    	Reader r = new StringReader(fileContent);
+
+    	long read = v.loadPeople(r, 4);
+
+    	assertEquals(NUM_PERSONS,v.countPeople());
+    	Vaccines seq = new Vaccines();
+    	assertEquals("Parallel and sequential loading should return the same value",
+    				 seq.loadPeople(new StringReader(fileContent)), read);
+	}
+
+	@Test(expected = VaccineException.class)
+	public void testWrongHeader() throws IOException, VaccineException {
+    	Reader r = new StringReader("SSN,LAST,FIRST\nMRIDRG47P23H501K,Draghi,Mario,1947");
+
+    	v.loadPeople(r, 4);
+	}
+
+	@Test
+	public void testErrorsInOrder() throws IOException, VaccineException {
+		StringBuilder content = new StringBuilder("SSN,LAST,FIRST,YEAR\n");
+		List<Integer> expected = new ArrayList<>();
+		for(int i=0; i<30000; ++i) {
+			if(i%1000==7) {
+				content.append("ABC").append(i).append(",Smith\n");
+				expected.add(i+2);
+			} else if(i%1000==500) {
+				content.append("ABC").append(i-1).append(",Smith,John,1923\n");
+				expected.add(i+2);
+			} else {
+				content.append("ABC").append(i).append(",Smith,John,1923\n");
+			}
+		}
+		List<Integer> errors = new ArrayList<>();
+		v.setLoadListener((i,l)-> errors.add(i) );
+
+		v.loadPeople(new StringReader(content.toString()), 4);
+
+		assertEquals("Errors should be notified in line order", expected, errors);
+		assertEquals(30000-expected.size(), v.countPeople());
+	}
+
+	@Test
+	public void testSameAsSequential() throws IOException, VaccineException {
+		String content = "SSN,LAST,FIRST,YEAR\n"
+				+ "S1,Rossi,Mario,1990,\n"
+				+ "S2,Bianchi,Anna,1985,,,\n"
+				+ "S3,Verdi,Luca,\n"
+				+ "S4,Neri,Sara,1970,x\n"
+				+ "S5,Gialli,Paolo,,1960\n"
+				+ ",Bruni,Elena,1950\n"
+				+ "S7,,Marco,1940\n"
+				+ "S1,Rossi,Mario,1990\n"
+				+ "\n"
+				+ ",,,,\n"
+				+ "S8,Blu,Ugo,1930";
+		Vaccines seq = new Vaccines();
+		List<String> seqErrors = new ArrayList<>();
+		seq.setLoadListener((i,l)-> seqErrors.add(i + ":" + l));
+		List<String> errors = new ArrayList<>();
+		v.setLoadListener((i,l)-> errors.add(i + ":" + l));
+
+		long read = v.loadPeople(new StringReader(content), 2);
+
+		assertEquals(seq.loadPeople(new StringReader(content)), read);
+		assertEquals("Parallel and sequential loading should report the same errors", seqErrors, errors);
+		assertEquals(seq.countPeople(), v.countPeople());
+		for(String ssn : List.of("S1", "S2", "", "S7", "S8")) {
+			assertEquals(seq.getPerson(ssn), v.getPerson(ssn));
+		}
+		assertNotNull("Trailing empty fields should be ignored", v.getPerson("S1"));
+		assertNotNull(v.getPerson("S2"));
+	}
+}
@@ -0,0 +1,81 @@
+package additional;
+
+import static additional.TestUtils.generateAndAddPerson;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import vaccination.VaccineException;
+import vaccination.Vaccines;
+
+public class TestSnapshot {
+	private Vaccines v;
+	private Path file;
+
+	@Before
+	public void setUp() throws VaccineException, IOException {
+		v = new Vaccines();
+		generateAndAddPerson(5000, v);
+    	v.setAgeIntervals(30,50,60,70);
+
+    	v.defineHub("Hub 1");
+    	v.defineHub("Hub 2");
+    	v.setStaff("Hub 1", 7, 6, 4);
+    	v.setStaff("Hub 2", 4, 3, 2);
+    	v.setHours(8,8,8,8,8,6,4);
+    	v.allocate("Hub 1", 0);
+
+    	file = Files.createTempFile("vaccines", ".snapshot");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testRestore() throws IOException, VaccineException {
+		v.saveSnapshot(file);
+
+		for(Vaccines.Storage storage : Vaccines.Storage.values()) {
+			Vaccines r = new Vaccines(storage);
+			r.loadSnapshot(file);
+
+			assertEquals(v.countPeople(), r.countPeople());
+			assertEquals(v.getAgeIntervals(), r.getAgeIntervals());
+			assertEquals(v.getInInterval("[70,+)"), r.getInInterval("[70,+)"));
+			assertEquals(v.getHubs(), r.getHubs());
+			assertEquals(v.getAvailable(), r.getAvailable());
+			assertEquals(v.getHours(), r.getHours());
+			assertEquals(v.propAllocated(), r.propAllocated(), 0.0);
+			assertEquals(v.distributionAllocated(), r.distributionAllocated());
+		}
+
+		List<Map<String,List<String>>> expected = v.weekAllocate();
+		for(Vaccines.Storage storage : Vaccines.Storage.values()) {
+			Vaccines r = new Vaccines(storage);
+			r.loadSnapshot(file);
+			assertEquals("Restored system should continue the same allocation",
+						 expected, r.weekAllocate());
+		}
+	}
+
+	@Test
+	public void testInvalidSnapshot() throws IOException {
+		Files.write(file, new byte[] {1,2,3,4,5,6,7,8});
+		try {
+			v.loadSnapshot(file);
+			fail("Invalid snapshot should be rejected");
+		} catch(VaccineException e) {
+		}
+		assertEquals("State should not change after a failed load", 5000, v.countPeople());
+	}
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import vaccination.VaccineException;
+import vaccination.Vaccines;
+
+/**
+ * Compares the throughput of sequential and parallel loading
+ * of a generated people file.
+ * <p>
+ * Usage: {@code LoadBenchmark [rows] [threads]}, default 10 000 000 rows
+ * and as many threads as available processors.
+ * Run with a large heap, e.g. {@code -Xmx8g}.
+ */
+public class LoadBenchmark {
+
+	public static void main(String[] args) throws IOException, VaccineException {
+		int rows = args.length>0 ? Integer.parseInt(args[0]) : 10_000_000;
+		int threads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		Path file = Files.createTempFile("people", ".csv");
+		try {
+			generate(file, rows);
+			System.out.printf("File: %d rows, %d MB%n", rows, Files.size(file)>>20);
+
+			run("sequential", file, rows, 0);
+			run("parallel (" + threads + " threads)", file, rows, threads);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static void run(String name, Path file, int rows, int threads) throws IOException, VaccineException {
+		Vaccines v = new Vaccines();
+		System.gc();
+		long start = System.nanoTime();
+		if(threads==0) v.loadPeople(Files.newBufferedReader(file));
+		else v.loadPeople(Files.newBufferedReader(file), threads);
+		double secs = (System.nanoTime()-start)/1e9;
+		System.out.printf("%-25s %6.2f s  %,12.0f rows/s  (%d people)%n", name, secs, rows/secs, v.countPeople());
+	}
+
+	private static void generate(Path file, int rows) throws IOException {
+		String[] firsts = {"Ali","Anna","Enrica","Giorgio","Luca","Lucia","Mario","Miriam","Paola","Xavier"};
+		String[] lasts = {"Abaco","Draghi","Letto","Melone","Mattei","Russo","Neri","Rossi","Verdi","Xavier"};
+		Random rg = new Random(4713);
+		try(BufferedWriter w = Files.newBufferedWriter(file)){
+			w.write("SSN,LAST,FIRST,YEAR\n");
+			for(int i=0; i<rows; ++i) {
+				w.write(String.format("P%015d,%s,%s,%d%n", i, lasts[rg.nextInt(lasts.length)],
+									  firsts[rg.nextInt(firsts.length)], 1922+rg.nextInt(100)));
+			}
+		}
+	}
+}
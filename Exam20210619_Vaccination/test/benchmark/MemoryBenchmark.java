@@ -0,0 +1,44 @@
+package benchmark;
+
+import java.util.Random;
+
+import vaccination.Vaccines;
+
+/**
+ * Compares the heap used by the object and compact person storages.
+ * <p>
+ * Usage: {@code MemoryBenchmark [people]}, default 5 000 000 people.
+ * Run with a large heap, e.g. {@code -Xmx8g}.
+ */
+public class MemoryBenchmark {
+
+	public static void main(String[] args) {
+		int n = args.length>0 ? Integer.parseInt(args[0]) : 5_000_000;
+		for(Vaccines.Storage storage : Vaccines.Storage.values()) {
+			long before = usedHeap();
+			Vaccines v = fill(new Vaccines(storage), n);
+			long after = usedHeap();
+			System.out.printf("%-8s %,8d MB  %6.1f bytes/person  (%d people)%n", storage,
+							  (after-before)>>20, (after-before)/(double)n, v.countPeople());
+		}
+	}
+
+	private static Vaccines fill(Vaccines v, int n) {
+		String[] firsts = {"Ali","Anna","Enrica","Giorgio","Luca","Lucia","Mario","Miriam","Paola","Xavier"};
+		String[] lasts = {"Abaco","Draghi","Letto","Melone","Mattei","Russo","Neri","Rossi","Verdi","Xavier"};
+		Random rg = new Random(4713);
+		v.setAgeIntervals(30,50,60,70);
+		for(int i=0; i<n; ++i) {
+			// new strings, as if read from a file
+			v.addPerson(new String(firsts[rg.nextInt(firsts.length)]), new String(lasts[rg.nextInt(lasts.length)]),
+						String.format("P%015d", i), 1922+rg.nextInt(100));
+		}
+		return v;
+	}
+
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for(int i=0; i<3; ++i) System.gc();
+		return rt.totalMemory()-rt.freeMemory();
+	}
+}
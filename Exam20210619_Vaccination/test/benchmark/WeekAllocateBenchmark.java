@@ -0,0 +1,59 @@
+package benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import vaccination.VaccineException;
+import vaccination.Vaccines;
+
+/**
+ * Compares sequential and concurrent week allocation.
+ * <p>
+ * Usage: {@code WeekAllocateBenchmark [people] [hubs] [threads]},
+ * default 2 000 000 people, 40 hubs and as many threads as available processors.
+ * Each mode is run a few times for warm-up before being measured.
+ */
+public class WeekAllocateBenchmark {
+	private static final int WARMUP = 3;
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws VaccineException {
+		int n = args.length>0 ? Integer.parseInt(args[0]) : 2_000_000;
+		int hubs = args.length>1 ? Integer.parseInt(args[1]) : 40;
+		int threads = args.length>2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		Vaccines v = new Vaccines(Vaccines.Storage.COMPACT);
+		Random rg = new Random(4713);
+		for(int i=0; i<n; ++i) v.addPerson("First", "Last", String.format("P%015d", i), 1922+rg.nextInt(100));
+		v.setAgeIntervals(30,50,60,70);
+		for(int i=0; i<hubs; ++i) {
+			v.defineHub("Hub " + i);
+			v.setStaff("Hub " + i, 20+i%5, 20, 15);
+		}
+		v.setHours(12,12,12,12,12,12,12);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			measure("sequential", () -> v.weekAllocate(), v);
+			measure("concurrent (" + threads + " threads)", () -> v.weekAllocate(executor), v);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void measure(String name, Runnable allocation, Vaccines v) {
+		for(int i=0; i<WARMUP; ++i) {
+			v.clearAllocation();
+			allocation.run();
+		}
+		long total = 0;
+		for(int i=0; i<RUNS; ++i) {
+			v.clearAllocation();
+			long start = System.nanoTime();
+			allocation.run();
+			total += System.nanoTime()-start;
+		}
+		System.out.printf("%-25s %8.1f ms/week  (%.0f%% allocated)%n", name, total/1e6/RUNS, v.propAllocated()*100);
+	}
+}
@@ -0,0 +1,104 @@
+package test.additional;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import train.TrainException;
+import train.TrainManager;
+
+public class TestBoarding {
+
+	private static final int STOPS = 20;
+	private TrainManager mgr;
+	private String[] stops;
+	private List<Object[]> bookings;
+
+	@Before
+	public void setUp() throws TrainException {
+		mgr = new TrainManager();
+		mgr.addClasses("Normal", "First");
+		mgr.addCar("N1", 10, 'D', "Normal");
+		mgr.addCar("F1", 5, 'B', "First");
+		stops = new String[STOPS];
+		for(int i=0; i<STOPS; ++i) stops[i] = "S" + i;
+		mgr.defineStops(stops);
+		bookings = new ArrayList<>();
+	}
+
+	/**
+	 * Books a random trip, accepted bookings are recorded as {code, car, seat, begin, end}
+	 */
+	private void book(Random rnd) {
+		String car = rnd.nextBoolean() ? "N1" : "F1";
+		String seat = car.equals("N1") ? "" + (1+rnd.nextInt(10)) + (char) ('A'+rnd.nextInt(4))
+									   : "" + (1+rnd.nextInt(5)) + (char) ('A'+rnd.nextInt(2));
+		int begin = rnd.nextInt(STOPS-1);
+		int end = begin + 1 + rnd.nextInt(STOPS-1-begin);
+		try {
+			String code = mgr.bookSeat("SSN", "N", "S", stops[begin], stops[end], car, seat);
+			bookings.add(new Object[] {code, car, seat, begin, end});
+		} catch(TrainException e) {
+			// seat taken
+		}
+	}
+
+	@Test
+	public void testBoardingMatchesScan() {
+		Random rnd = new Random(7);
+		for(int i=0; i<300; ++i) book(rnd);
+		for(int step=0; step<200; ++step) {
+			if(step%10==0) for(int i=0; i<20; ++i) book(rnd);
+			int last = rnd.nextInt(STOPS);
+			long expected = bookings.stream().filter(b -> (int) b[3]<=last && (int) b[4]>last).count();
+			assertEquals("Passengers after " + last, expected, mgr.setLastStop(stops[last]));
+			for(int k=0; k<5; ++k) {
+				Object[] b = bookings.get(rnd.nextInt(bookings.size()));
+				String onBoard = bookings.stream().filter(o -> o[1].equals(b[1]) && o[2].equals(b[2]) && (int) o[3]<=last && (int) o[4]>last)
+						.map(o -> (String) o[0]).findFirst().orElse(null);
+				assertEquals(onBoard, mgr.checkSeat((String) b[1], (String) b[2]));
+			}
+		}
+	}
+
+	@Test
+	public void testBookingAfterLastStop() throws TrainException {
+		mgr.setLastStop("S5");
+		String code = mgr.bookSeat("SSN", "N", "S", "S3", "S8", "N1", "1A");
+		assertEquals(code, mgr.checkSeat("N1", "1A"));
+		assertEquals(1, mgr.setLastStop("S7"));
+		assertEquals(0, mgr.setLastStop("S8"));
+		assertNull(mgr.checkSeat("N1", "1A"));
+		assertEquals(1, mgr.setLastStop("S3"));
+		assertEquals(0, mgr.setLastStop("S2"));
+	}
+
+	@Test
+	public void testIncrementalStats() throws TrainException {
+		mgr.bookSeat("A", "N", "S", "S0", "S19", "N1", "1A");
+		mgr.bookSeat("B", "N", "S", "S0", "S10", "N1", "2A");
+		mgr.bookSeat("C", "N", "S", "S10", "S19", "N1", "2A");
+		mgr.bookSeat("D", "N", "S", "S4", "S6", "F1", "5B");
+		assertEquals(2/40.0, mgr.showFillRatio("Normal"), 0.0001);
+		assertEquals(1/10.0, mgr.showFillRatio("First"), 0.0001);
+		assertEquals(38/(40.0*19), mgr.showOccupationRatio("Normal"), 0.0001);
+		assertEquals(2/(10.0*19), mgr.showOccupationRatio("First"), 0.0001);
+
+		mgr.setLastStop("S5");
+		assertNotNull(mgr.checkSeat("N1", "1A"));
+		assertNotNull(mgr.checkSeat("N1", "1A"));
+		assertNotNull(mgr.checkSeat("F1", "5B"));
+		mgr.setLastStop("S12");
+		assertNotNull(mgr.checkSeat("N1", "2A"));
+		Map<String,Long> coverage = mgr.checkCoverage();
+		assertEquals(2, coverage.size());
+		assertEquals(2L, (long) coverage.get("Normal"));
+		assertEquals(1L, (long) coverage.get("First"));
+	}
+}
@@ -0,0 +1,181 @@
+package test.additional;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import train.TrainException;
+import train.TrainManager;
+
+public class TestConcurrentBooking {
+
+	private static final int THREADS = 8;
+	private static final int STOPS = 150;
+	private TrainManager mgr;
+	private String[] stops;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws TrainException {
+		mgr = new TrainManager();
+		mgr.addClasses("Normal");
+		mgr.addCar("C1", 4, 'B', "Normal");
+		stops = new String[STOPS];
+		for(int i=0; i<STOPS; ++i) stops[i] = "S" + i;
+		mgr.defineStops(stops);
+		executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private <T> List<T> runAll(List<Callable<T>> tasks) throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<T>> futures = new ArrayList<>();
+		for(Callable<T> task : tasks) futures.add(executor.submit(() -> { start.await(); return task.call(); }));
+		start.countDown();
+		List<T> results = new ArrayList<>();
+		for(Future<T> future : futures) results.add(future.get());
+		return results;
+	}
+
+	@Test
+	public void testSameSeatOnlyOnce() throws Exception {
+		for(int round=0; round<8; ++round) {
+			final String seat = "" + (1 + round%4) + (round<4 ? 'A' : 'B');
+			final int begin = 2*round;
+			List<Callable<Boolean>> tasks = new ArrayList<>();
+			for(int t=0; t<THREADS; ++t) {
+				// overlapping trips of different length, crossing the 64 segments boundary
+				final int end = begin + 1 + t*10;
+				tasks.add(() -> {
+					try {
+						mgr.bookSeat("SSN", "N", "S", stops[begin], stops[Math.min(end, STOPS-1)], "C1", seat);
+						return true;
+					} catch(TrainException e) {
+						return false;
+					}
+				});
+			}
+			List<Boolean> results = runAll(tasks);
+			assertEquals("Exactly one booking of " + seat + " should succeed", 1, results.stream().filter(b -> b).count());
+		}
+	}
+
+	@Test
+	public void testFailingTripDoesNotRejectOthers() throws Exception {
+		final int rows = 100;
+		final int pairs = THREADS/2;
+		mgr.addCar("C2", rows, 'D', "Normal");
+		for(int row=1; row<=rows; ++row) for(char letter='A'; letter<='D'; ++letter) {
+			mgr.bookSeat("SSN", "N", "S", "S70", "S80", "C2", "" + row + letter);
+		}
+		// each pair works on a seat at a time: one thread repeatedly tries a trip across
+		// the 64 segments boundary that always conflicts after it, the other books a trip
+		// overlapping only its first part
+		AtomicIntegerArray current = new AtomicIntegerArray(pairs);
+		AtomicIntegerArray attempts = new AtomicIntegerArray(pairs);
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for(int t=0; t<pairs; ++t) {
+			final int pair = t;
+			final char letter = (char) ('A' + t%4);
+			current.set(pair, 1);
+			tasks.add(() -> {
+				int row;
+				while((row = current.get(pair)) <= rows) {
+					try {
+						mgr.bookSeat("SSN", "N", "S", "S10", "S75", "C2", "" + row + letter);
+						fail("Trip overlapping an existing booking accepted");
+					} catch(TrainException e) {
+						attempts.incrementAndGet(pair);
+					}
+				}
+				return 0;
+			});
+			tasks.add(() -> {
+				int accepted = 0;
+				for(int row=1; row<=rows; ++row) {
+					current.set(pair, row);
+					int seen = attempts.get(pair);
+					while(attempts.get(pair) < seen + 2) Thread.onSpinWait();
+					try {
+						mgr.bookSeat("SSN", "N", "S", "S20", "S30", "C2", "" + row + letter);
+						++accepted;
+					} catch(TrainException e) {
+						// rejected
+					}
+				}
+				current.set(pair, rows+1);
+				return accepted;
+			});
+		}
+		List<Integer> results = runAll(tasks);
+		for(int t=0; t<pairs; ++t) {
+			assertEquals("Trips overlapping only failing trips should be accepted", rows, results.get(2*t+1).intValue());
+		}
+		for(int row=1; row<=rows; ++row) for(char letter='A'; letter<='D'; ++letter) {
+			assertEquals(List.of("S20-S30:SSN", "S70-S80:SSN"), List.copyOf(mgr.listBookings("C2", "" + row + letter)));
+		}
+	}
+
+	@Test
+	public void testNoOverlappingBookings() throws Exception {
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for(int t=0; t<THREADS; ++t) {
+			final Random rnd = new Random(t);
+			tasks.add(() -> {
+				int accepted = 0;
+				for(int i=0; i<5000; ++i) {
+					int begin = rnd.nextInt(STOPS-1);
+					int end = begin + 1 + rnd.nextInt(Math.min(STOPS-1-begin, 80));
+					try {
+						mgr.bookSeat("SSN", "N", "S", stops[begin], stops[end], "C1", "" + (1+rnd.nextInt(4)) + (char) ('A'+rnd.nextInt(2)));
+						++accepted;
+					} catch(TrainException e) {
+						// seat taken
+					}
+				}
+				return accepted;
+			});
+		}
+		int accepted = runAll(tasks).stream().mapToInt(Integer::intValue).sum();
+
+		List<String> stopList = Arrays.asList(stops);
+		int listed = 0;
+		long slots = 0;
+		for(int row=1; row<=4; ++row) for(char letter='A'; letter<='B'; ++letter) {
+			Collection<String> bookings = mgr.listBookings("C1", "" + row + letter);
+			int lastEnd = -1;
+			for(String booking : bookings) {
+				String[] trip = booking.substring(0, booking.indexOf(':')).split("-");
+				int begin = stopList.indexOf(trip[0]);
+				int end = stopList.indexOf(trip[1]);
+				assertTrue("Overlapping bookings on " + row + letter + ": " + bookings, begin>=lastEnd);
+				lastEnd = end;
+				slots += end-begin;
+				++listed;
+			}
+		}
+		assertEquals(accepted, listed);
+		assertEquals(slots/(8.0*(STOPS-1)), mgr.showOccupationRatio("Normal"), 1e-9);
+		// booking codes are unique and consecutive
+		for(int i=1; i<=accepted; ++i) assertNotNull("Missing booking B" + i, mgr.getBookingSeat("B" + i));
+		assertNull(mgr.getBookingSeat("B" + (accepted+1)));
+	}
+}
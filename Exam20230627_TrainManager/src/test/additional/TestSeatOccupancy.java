@@ -0,0 +1,107 @@
+package test.additional;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import train.TrainException;
+import train.TrainManager;
+
+public class TestSeatOccupancy {
+
+	private static final int STOPS = 100;
+	private TrainManager mgr;
+	private String[] stops;
+
+	@Before
+	public void setUp() throws TrainException {
+		mgr = new TrainManager();
+		mgr.addClasses("Normal");
+		mgr.addCar("C1", 12, 'D', "Normal");
+		stops = new String[STOPS];
+		for(int i=0; i<STOPS; ++i) stops[i] = "S" + i;
+		mgr.defineStops(stops);
+	}
+
+	@Test
+	public void testMatchesBruteForce() {
+		// trips crossing the 64 segments word boundary on random seats
+		Random rnd = new Random(42);
+		List<int[]> accepted = new ArrayList<>();
+		for(int i=0; i<5000; ++i) {
+			int row = 1 + rnd.nextInt(12);
+			char letter = (char) ('A' + rnd.nextInt(4));
+			int seat = (row-1)*4 + (letter-'A');
+			int begin = rnd.nextInt(STOPS-1);
+			int end = begin + 1 + rnd.nextInt(Math.min(STOPS-1-begin, 40));
+			boolean free = accepted.stream().noneMatch(b -> b[0]==seat && b[1]<end && begin<b[2]);
+			try {
+				mgr.bookSeat("SSN"+i, "N", "S", stops[begin], stops[end], "C1", "" + row + letter);
+				assertTrue("Booking " + i + " overlaps an existing one", free);
+				accepted.add(new int[] {seat, begin, end});
+			} catch(TrainException e) {
+				assertFalse("Booking " + i + " should be accepted", free);
+			}
+		}
+		assertFalse(accepted.isEmpty());
+
+		for(int i=0; i<200; ++i) {
+			int begin = rnd.nextInt(STOPS-1);
+			int end = begin + 1 + rnd.nextInt(STOPS-1-begin);
+			List<String> expected = new ArrayList<>();
+			for(int seat=0; seat<48; ++seat) {
+				final int s = seat;
+				if(accepted.stream().noneMatch(b -> b[0]==s && b[1]<end && begin<b[2])) expected.add("" + (seat/4+1) + (char) ('A'+seat%4));
+			}
+			Map<String,List<String>> seats = mgr.findSeats(stops[begin], stops[end], "Normal");
+			assertEquals("Free seats from " + begin + " to " + end, expected, seats.get("C1"));
+		}
+	}
+
+	@Test
+	public void testFindSeats() throws TrainException {
+		mgr.addCar("C2", 30, 'C', "Normal");
+		mgr.bookSeat("A", "N", "S", "S10", "S20", "C1", "2B");
+		mgr.bookSeat("A", "N", "S", "S20", "S80", "C2", "30C");
+		Map<String,List<String>> seats = mgr.findSeats("S0", "S10", "Normal");
+		assertEquals(48, seats.get("C1").size());
+		assertEquals(90, seats.get("C2").size());
+		assertEquals("1A", seats.get("C1").get(0));
+		assertEquals("30C", seats.get("C2").get(89));
+		seats = mgr.findSeats("S19", "S21", "Normal");
+		assertFalse(seats.get("C1").contains("2B"));
+		assertFalse(seats.get("C2").contains("30C"));
+		assertEquals(47, seats.get("C1").size());
+		assertEquals(89, seats.get("C2").size());
+		assertEquals(90, mgr.findSeats("S80", "S99", "Normal").get("C2").size());
+		assertTrue(mgr.findSeats("S0", "S99", "Luxury").isEmpty());
+		assertTrue(mgr.findSeats("S0", "Nowhere", "Normal").isEmpty());
+	}
+
+	@Test
+	public void testSeatCodes() throws TrainException {
+		assertNotNull(mgr.bookSeat("A", "N", "S", "S0", "S1", "C1", "12D"));
+		assertNotNull(mgr.bookSeat("A", "N", "S", "S0", "S1", "C1", "1A"));
+		assertThrows(TrainException.class, () -> mgr.bookSeat("A", "N", "S", "S0", "S1", "C1", "13A"));
+		assertThrows(TrainException.class, () -> mgr.bookSeat("A", "N", "S", "S0", "S1", "C1", "0A"));
+		assertThrows(TrainException.class, () -> mgr.bookSeat("A", "N", "S", "S0", "S1", "C1", "1E"));
+		assertThrows(TrainException.class, () -> mgr.bookSeat("A", "N", "S", "S0", "S1", "C1", "A"));
+		assertThrows(TrainException.class, () -> mgr.bookSeat("A", "N", "S", "S2", "S1", "C1", "2A"));
+	}
+
+	@Test
+	public void testStopsAddedAfterCars() throws TrainException {
+		String[] more = new String[100];
+		for(int i=0; i<more.length; ++i) more[i] = "T" + i;
+		mgr.defineStops(more);
+		mgr.bookSeat("A", "N", "S", "S50", "T10", "C1", "3B");
+		assertThrows(TrainException.class, () -> mgr.bookSeat("B", "N", "S", "T9", "T99", "C1", "3B"));
+		assertNotNull(mgr.bookSeat("B", "N", "S", "T10", "T99", "C1", "3B"));
+	}
+}
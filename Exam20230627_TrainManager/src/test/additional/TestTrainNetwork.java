@@ -0,0 +1,194 @@
+package test.additional;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import train.ArchivedRun;
+import train.TrainException;
+import train.TrainManager;
+import train.TrainNetwork;
+
+public class TestTrainNetwork {
+
+	private static final LocalDate START = LocalDate.of(2023, 6, 1);
+	private TrainNetwork network;
+
+	@Before
+	public void setUp() throws TrainException {
+		network = new TrainNetwork();
+		for(int s=0; s<300; ++s) {
+			TrainManager service = network.defineService("R" + s);
+			service.addClasses("Normal", "First");
+			service.addCar("N1", 20, 'D', "Normal");
+			service.addCar("F1", 5, 'B', "First");
+			service.defineStops("Turin", "Vercelli", "Novara", "Milan Centrale");
+			assertEquals(180, network.scheduleRuns("R" + s, START, START.plusDays(179)));
+		}
+	}
+
+	@Test
+	public void testLazyRuns() throws TrainException {
+		assertEquals("Runs should be created on first booking", 0, network.getNumActiveRuns());
+		Map<String,List<String>> seats = network.findSeats("R1", START, "Turin", "Novara", "Normal");
+		assertEquals(80, seats.get("N1").size());
+		assertEquals(0, network.getNumActiveRuns());
+
+		String code = network.bookSeat("R1", START, "SSN1", "N", "S", "Turin", "Novara", "N1", "1A");
+		assertNotNull(code);
+		assertEquals(1, network.getNumActiveRuns());
+		assertEquals(79, network.findSeats("R1", START, "Turin", "Novara", "Normal").get("N1").size());
+
+		// runs are independent
+		assertNotNull(network.bookSeat("R1", START.plusDays(1), "SSN2", "N", "S", "Turin", "Novara", "N1", "1A"));
+		assertNotNull(network.bookSeat("R2", START, "SSN3", "N", "S", "Turin", "Novara", "N1", "1A"));
+		assertThrows(TrainException.class, () -> network.bookSeat("R1", START, "SSN4", "N", "S", "Vercelli", "Milan Centrale", "N1", "1A"));
+		assertEquals(3, network.getNumActiveRuns());
+		assertEquals(1, network.getRun("R1", START).setLastStop("Vercelli"));
+	}
+
+	@Test
+	public void testScheduling() throws TrainException {
+		assertThrows(TrainException.class, () -> network.bookSeat("R1", START.minusDays(1), "SSN", "N", "S", "Turin", "Novara", "N1", "1A"));
+		assertThrows(TrainException.class, () -> network.bookSeat("X", START, "SSN", "N", "S", "Turin", "Novara", "N1", "1A"));
+		assertThrows(TrainException.class, () -> network.defineService("R1"));
+		assertEquals(1, network.scheduleRuns("R1", START.minusDays(1), START));
+		assertTrue(network.isScheduled("R1", START.minusDays(1)));
+		assertFalse(network.isScheduled("R1", START.plusDays(180)));
+	}
+
+	@Test
+	public void testArchive() throws TrainException {
+		String b1 = network.bookSeat("R1", START, "SSN1", "N", "S", "Turin", "Novara", "N1", "1A");
+		network.bookSeat("R1", START, "SSN2", "N", "S", "Turin", "Milan Centrale", "F1", "2B");
+		network.bookSeat("R1", START.plusDays(1), "SSN3", "N", "S", "Turin", "Novara", "N1", "1A");
+		network.getRun("R1", START).setLastStop("Turin");
+		assertEquals(b1, network.getRun("R1", START).checkSeat("N1", "1A"));
+
+		assertEquals(1, network.archiveRunsBefore(START.plusDays(1)));
+		assertEquals(1, network.getNumActiveRuns());
+		assertFalse(network.isScheduled("R1", START));
+		assertFalse(network.isScheduled("R7", START));
+		assertThrows(TrainException.class, () -> network.bookSeat("R1", START, "SSN4", "N", "S", "Turin", "Novara", "N1", "3A"));
+		assertEquals(0, network.scheduleRuns("R1", START, START));
+
+		ArchivedRun archived = network.getArchivedRun("R1", START);
+		assertNotNull(archived);
+		assertEquals(2, archived.getNumBookings());
+		assertEquals("SSN1", archived.getBooking(b1).getSsn());
+		assertEquals("Turin-Novara", archived.getBooking(b1).getTrip());
+		assertEquals(1, archived.getCheckedCount());
+		assertNull(network.getArchivedRun("R2", START));
+	}
+
+	@Test
+	public void testRollingHorizon() throws TrainException {
+		assertEquals(180, network.getScheduleSpan("R1"));
+		// a year of weekly archiving, keeping 180 days scheduled ahead
+		for(int w=1; w<=52; ++w) {
+			LocalDate today = START.plusWeeks(w);
+			network.bookSeat("R1", today, "SSN", "N", "S", "Turin", "Novara", "N1", "1A");
+			network.archiveRunsBefore(today);
+			network.scheduleRuns("R1", today, today.plusDays(179));
+			assertTrue(network.isScheduled("R1", today.plusDays(179)));
+			assertFalse(network.isScheduled("R1", today.minusDays(1)));
+			assertEquals("Archived days should not be kept in the schedule", 180, network.getScheduleSpan("R1"));
+		}
+		assertNotNull(network.getArchivedRun("R1", START.plusWeeks(51)));
+	}
+
+	@Test
+	public void testNoReschedulingOfArchivedDays() throws TrainException {
+		network.bookSeat("R1", START.plusDays(2), "SSN1", "N", "S", "Turin", "Novara", "N1", "1A");
+		assertEquals(1, network.archiveRunsBefore(START.plusDays(20)));
+		// an earlier archiving date does not move the limit back
+		assertEquals(0, network.archiveRunsBefore(START.plusDays(5)));
+
+		assertEquals(0, network.scheduleRuns("R1", START, START.plusDays(9)));
+		assertEquals(0, network.scheduleRuns("R2", START.minusDays(10), START.plusDays(19)));
+		assertFalse(network.isScheduled("R1", START.plusDays(5)));
+		assertFalse(network.isScheduled("R2", START.minusDays(1)));
+		assertThrows(TrainException.class, () -> network.bookSeat("R1", START.plusDays(5), "SSN2", "N", "S", "Turin", "Novara", "N1", "1A"));
+		assertThrows(TrainException.class, () -> network.bookSeat("R1", START.plusDays(2), "SSN3", "N", "S", "Turin", "Novara", "N1", "2A"));
+		assertThrows(TrainException.class, () -> network.getRun("R2", START.minusDays(1)));
+		assertEquals(1, network.getArchivedRun("R1", START.plusDays(2)).getNumBookings());
+		assertEquals(160, network.getScheduleSpan("R1"));
+
+		assertEquals(1, network.scheduleRuns("R1", START.plusDays(19), START.plusDays(180)));
+		assertNotNull(network.bookSeat("R1", START.plusDays(20), "SSN4", "N", "S", "Turin", "Novara", "N1", "1A"));
+	}
+
+	@Test
+	public void testBookingsRacingWithArchive() throws Exception {
+		final int threads = 4, days = 30, services = 10;
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			ConcurrentLinkedQueue<String[]> booked = new ConcurrentLinkedQueue<>();
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for(int t=0; t<threads; ++t) {
+				final int thread = t;
+				tasks.add(() -> {
+					start.await();
+					for(int d=0; d<days; ++d) {
+						for(int s=0; s<services; ++s) {
+							// each thread books its own rows, so only the archiving can reject a booking
+							for(int i=0; i<20; ++i) {
+								String seat = "" + (5*thread + i/4 + 1) + (char) ('A' + i%4);
+								try {
+									String code = network.bookSeat("R" + s, START.plusDays(d), "SSN", "N", "S", "Turin", "Novara", "N1", seat);
+									booked.add(new String[]{"R" + s, "" + d, code});
+								} catch(TrainException e) {
+									// the run has been archived
+								}
+							}
+						}
+					}
+					return null;
+				});
+			}
+			tasks.add(() -> {
+				start.await();
+				for(int d=1; d<=days; ++d) {
+					network.archiveRunsBefore(START.plusDays(d));
+					Thread.yield();
+				}
+				return null;
+			});
+			List<Future<Void>> futures = new ArrayList<>();
+			for(Callable<Void> task : tasks) futures.add(executor.submit(task));
+			start.countDown();
+			for(Future<Void> future : futures) future.get();
+
+			network.archiveRunsBefore(START.plusDays(days));
+			assertFalse(booked.isEmpty());
+			int archivedBookings = 0;
+			for(int s=0; s<services; ++s) {
+				for(int d=0; d<days; ++d) {
+					ArchivedRun run = network.getArchivedRun("R" + s, START.plusDays(d));
+					if(run != null) archivedBookings += run.getNumBookings();
+				}
+			}
+			for(String[] booking : booked) {
+				ArchivedRun run = network.getArchivedRun(booking[0], START.plusDays(Integer.parseInt(booking[1])));
+				assertNotNull("Booked run should be archived", run);
+				assertNotNull("Booking " + booking[2] + " should be archived", run.getBooking(booking[2]));
+			}
+			assertEquals("Only accepted bookings should be archived", booked.size(), archivedBookings);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import train.TrainException;
+import train.TrainManager;
+
+/**
+ * Measures the cost of booking seats on a 30-stop line.
+ * <p>
+ * Random trips are booked on random seats until the requested number of
+ * bookings has been accepted; the time per booking attempt should not grow
+ * with the number of bookings already made. For comparison, the conflict
+ * check scanning all the bookings is timed on the same attempts, up to a
+ * smaller number of bookings.
+ * <p>
+ * Usage: {@code BookingBenchmark [bookings] [baseline bookings]},
+ * default 100 000 and 10 000.
+ */
+public class BookingBenchmark {
+	private static final int STOPS = 30;
+	private static final int CARS = 400;
+	private static final int ROWS = 50;
+	private static final char LAST_SEAT = 'D';
+
+	public static void main(String[] args) throws TrainException {
+		int bookings = args.length>0 ? Integer.parseInt(args[0]) : 100_000;
+		int baseline = args.length>1 ? Integer.parseInt(args[1]) : 10_000;
+
+		int[][] attempts = attempts(new Random(1), 20*bookings);
+		run(attempts, bookings); // warm-up
+		for(int step = bookings/4; step <= bookings; step += bookings/4) {
+			long start = System.nanoTime();
+			int tried = run(attempts, step);
+			long elapsed = System.nanoTime()-start;
+			System.out.printf("bitmap    %,8d bookings  %,10d attempts  %8.1f ms  %6.0f ns/attempt%n", step, tried, elapsed/1e6, elapsed/(double) tried);
+		}
+		long start = System.nanoTime();
+		int tried = scan(attempts, baseline);
+		long elapsed = System.nanoTime()-start;
+		System.out.printf("full scan %,8d bookings  %,10d attempts  %8.1f ms  %6.0f ns/attempt%n", baseline, tried, elapsed/1e6, elapsed/(double) tried);
+	}
+
+	/**
+	 * @return attempts as {car, row, seat letter, begin stop, end stop}
+	 */
+	private static int[][] attempts(Random rnd, int count) {
+		int[][] attempts = new int[count][];
+		for(int i=0; i<count; ++i) {
+			int begin = rnd.nextInt(STOPS-1);
+			int end = begin + 1 + rnd.nextInt(STOPS-1-begin);
+			attempts[i] = new int[] {rnd.nextInt(CARS), 1+rnd.nextInt(ROWS), 'A'+rnd.nextInt(LAST_SEAT-'A'+1), begin, end};
+		}
+		return attempts;
+	}
+
+	private static String[] stops() {
+		String[] stops = new String[STOPS];
+		for(int i=0; i<STOPS; ++i) stops[i] = "Station" + i;
+		return stops;
+	}
+
+	/**
+	 * @return the number of attempts needed to accept the bookings
+	 */
+	private static int run(int[][] attempts, int bookings) throws TrainException {
+		TrainManager mgr = new TrainManager();
+		mgr.addClasses("Normal");
+		for(int c=0; c<CARS; ++c) mgr.addCar("C" + c, ROWS, LAST_SEAT, "Normal");
+		String[] stops = stops();
+		mgr.defineStops(stops);
+		int accepted = 0, i = 0;
+		for(; accepted<bookings && i<attempts.length; ++i) {
+			int[] a = attempts[i];
+			try {
+				mgr.bookSeat("SSN" + i, "Name", "Surname", stops[a[3]], stops[a[4]], "C" + a[0], "" + a[1] + (char) a[2]);
+				++accepted;
+			} catch(TrainException e) {
+				// seat taken on some segment
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Conflict check scanning all the accepted bookings
+	 */
+	private static int scan(int[][] attempts, int bookings) {
+		List<int[]> accepted = new ArrayList<>();
+		int i = 0;
+		for(; accepted.size()<bookings && i<attempts.length; ++i) {
+			int[] a = attempts[i];
+			boolean conflict = accepted.stream().anyMatch(b -> b[0]==a[0] && b[1]==a[1] && b[2]==a[2] && b[3]<a[4] && a[3]<b[4]);
+			if(!conflict) accepted.add(a);
+		}
+		return i;
+	}
+}
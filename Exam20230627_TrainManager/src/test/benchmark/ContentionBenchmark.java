@@ -0,0 +1,85 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import train.TrainException;
+import train.TrainManager;
+
+/**
+ * Measures concurrent booking throughput when all the threads compete for
+ * the seats of the same popular car, on a 30-stop line.
+ * <p>
+ * Each thread makes the same number of booking attempts on random seats and
+ * trips; the car is reset for each run. Attempts that fail because the seat
+ * is taken are counted as rejected.
+ * <p>
+ * Usage: {@code ContentionBenchmark [attempts per thread] [max threads]},
+ * default 200 000 attempts and twice the available processors.
+ */
+public class ContentionBenchmark {
+	private static final int STOPS = 30;
+	private static final int ROWS = 20;
+	private static final char LAST_SEAT = 'D';
+
+	public static void main(String[] args) throws Exception {
+		int attempts = args.length>0 ? Integer.parseInt(args[0]) : 200_000;
+		int maxThreads = args.length>1 ? Integer.parseInt(args[1]) : 2*Runtime.getRuntime().availableProcessors();
+
+		run(attempts, 1); // warm-up
+		for(int threads=1; threads<=maxThreads; threads*=2) run(attempts, threads);
+	}
+
+	private static void run(int attempts, int threads) throws Exception {
+		String[] stops = new String[STOPS];
+		for(int i=0; i<STOPS; ++i) stops[i] = "Station" + i;
+		TrainManager mgr = new TrainManager();
+		mgr.addClasses("Normal");
+		mgr.addCar("Popular", ROWS, LAST_SEAT, "Normal");
+		mgr.defineStops(stops);
+		// requests prepared in advance, so that only booking is timed
+		String[][] seats = new String[threads][attempts];
+		int[][] trips = new int[threads][2*attempts];
+		for(int t=0; t<threads; ++t) {
+			Random rnd = new Random(t);
+			for(int i=0; i<attempts; ++i) {
+				seats[t][i] = "" + (1+rnd.nextInt(ROWS)) + (char) ('A'+rnd.nextInt(LAST_SEAT-'A'+1));
+				trips[t][2*i] = rnd.nextInt(STOPS-1);
+				trips[t][2*i+1] = trips[t][2*i] + 1 + rnd.nextInt(Math.min(3, STOPS-1-trips[t][2*i]));
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> results = new ArrayList<>();
+		for(int t=0; t<threads; ++t) {
+			final int thread = t;
+			results.add(executor.submit(() -> {
+				start.await();
+				int accepted = 0;
+				for(int i=0; i<attempts; ++i) {
+					try {
+						mgr.bookSeat("SSN", "Name", "Surname", stops[trips[thread][2*i]], stops[trips[thread][2*i+1]], "Popular", seats[thread][i]);
+						++accepted;
+					} catch(TrainException e) {
+						// seat taken
+					}
+				}
+				return accepted;
+			}));
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		int accepted = 0;
+		for(Future<Integer> result : results) accepted += result.get();
+		double secs = (System.nanoTime()-begin)/1e9;
+		executor.shutdown();
+		long total = (long) attempts*threads;
+		System.out.printf("%2d threads  %,10d attempts  %,6d accepted  %6.2f s  %,12.0f attempts/s%n", threads, total, accepted, secs, total/secs);
+	}
+}
@@ -0,0 +1,71 @@
+package test.benchmark;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import train.TrainException;
+import train.TrainManager;
+import train.TrainNetwork;
+
+/**
+ * Measures the heap used by a network of train services, by the runs
+ * scheduled over the booking horizon, by the runs booked, and after
+ * archiving the first half of the horizon.
+ * <p>
+ * Usage: {@code NetworkBenchmark [services] [days] [booked percent]},
+ * default 500 services, 180 days and 5% of runs booked.
+ */
+public class NetworkBenchmark {
+
+	public static void main(String[] args) throws TrainException {
+		int services = args.length>0 ? Integer.parseInt(args[0]) : 500;
+		int days = args.length>1 ? Integer.parseInt(args[1]) : 180;
+		int percent = args.length>2 ? Integer.parseInt(args[2]) : 5;
+		LocalDate start = LocalDate.of(2024, 1, 1);
+		String[] stops = new String[30];
+		for(int i=0; i<stops.length; ++i) stops[i] = "Station" + i;
+
+		long base = usedHeap();
+		TrainNetwork network = new TrainNetwork();
+		for(int s=0; s<services; ++s) {
+			TrainManager service = network.defineService("R" + s);
+			service.addClasses("Normal", "First");
+			for(int c=0; c<8; ++c) service.addCar("N" + c, 20, 'D', "Normal");
+			for(int c=0; c<2; ++c) service.addCar("F" + c, 12, 'C', "First");
+			service.defineStops(stops);
+		}
+		long defined = usedHeap();
+		System.out.printf("%,d services defined           %,8d KB%n", services, (defined-base)/1024);
+		for(int s=0; s<services; ++s) network.scheduleRuns("R" + s, start, start.plusDays(days-1));
+		long scheduled = usedHeap();
+		System.out.printf("%,d runs scheduled          %,8d KB  %6.1f bytes/run%n", (long) services*days, (scheduled-defined)/1024, (scheduled-defined)/(double) services/days);
+
+		Random rnd = new Random(1);
+		int booked = 0;
+		for(int s=0; s<services; ++s) for(int d=0; d<days; ++d) {
+			if(rnd.nextInt(100)>=percent) continue;
+			for(int b=0; b<50; ++b) {
+				int begin = rnd.nextInt(stops.length-1);
+				try {
+					network.bookSeat("R" + s, start.plusDays(d), "SSN", "Name", "Surname", stops[begin], stops[begin+1+rnd.nextInt(stops.length-1-begin)],
+							"N" + rnd.nextInt(8), "" + (1+rnd.nextInt(20)) + (char) ('A'+rnd.nextInt(4)));
+				} catch(TrainException e) {
+					// seat taken
+				}
+			}
+			++booked;
+		}
+		long active = usedHeap();
+		System.out.printf("%,d runs booked              %,8d KB  %6.1f KB/booked run%n", booked, (active-scheduled)/1024, (active-scheduled)/1024.0/booked);
+
+		int archived = network.archiveRunsBefore(start.plusDays(days/2));
+		long after = usedHeap();
+		System.out.printf("%,d runs archived            %,8d KB  (%d active runs)%n", archived, (after-base)/1024, network.getNumActiveRuns());
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i=0; i<3; ++i) System.gc();
+		return runtime.totalMemory()-runtime.freeMemory();
+	}
+}
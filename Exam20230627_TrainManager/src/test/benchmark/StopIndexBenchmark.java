@@ -0,0 +1,94 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import train.Booking;
+import train.Car;
+import train.TrainException;
+import train.TrainManager;
+
+/**
+ * Compares the cost of the booking and passenger check queries
+ * ({@code listBookings}, {@code setLastStop}, {@code checkSeat}) with stop
+ * positions stored on the bookings against the same queries looking up the
+ * stop positions with {@code List.indexOf}, as they were computed before.
+ * <p>
+ * Usage: {@code StopIndexBenchmark [stops] [bookings] [rounds]},
+ * default 60 stops, 20 000 bookings and 5 rounds.
+ */
+public class StopIndexBenchmark {
+	private static final int ROWS = 50;
+	private static final char LAST_SEAT = 'D';
+	private static final int CHECKED_CARS = 5;
+
+	public static void main(String[] args) throws TrainException {
+		int numStops = args.length>0 ? Integer.parseInt(args[0]) : 60;
+		int numBookings = args.length>1 ? Integer.parseInt(args[1]) : 20_000;
+		int rounds = args.length>2 ? Integer.parseInt(args[2]) : 5;
+
+		List<String> stops = new ArrayList<>();
+		for(int i=0; i<numStops; ++i) stops.add("Station" + i);
+		TrainManager mgr = new TrainManager();
+		mgr.addClasses("Normal");
+		int cars = 1 + numBookings/(ROWS*4);
+		for(int c=0; c<cars; ++c) mgr.addCar("C" + c, ROWS, LAST_SEAT, "Normal");
+		mgr.defineStops(stops.toArray(new String[0]));
+
+		// the same bookings, queried as before the stop index
+		List<Booking> bookings = new ArrayList<>();
+		Random rnd = new Random(1);
+		while(bookings.size()<numBookings) {
+			int begin = rnd.nextInt(numStops-1);
+			int end = begin + 1 + rnd.nextInt(numStops-1-begin);
+			String car = "C" + rnd.nextInt(cars);
+			String seat = "" + (1+rnd.nextInt(ROWS)) + (char) ('A'+rnd.nextInt(4));
+			try {
+				String code = mgr.bookSeat("SSN", "Name", "Surname", stops.get(begin), stops.get(end), car, seat);
+				bookings.add(new Booking(code, "SSN", "Name", "Surname", stops.get(begin), stops.get(end), new Car(car, ROWS, LAST_SEAT, "Normal"), seat, begin, end));
+			} catch(TrainException e) {
+				// seat taken on some segment
+			}
+		}
+
+		for(int round=0; round<rounds; ++round) {
+			long start = System.nanoTime();
+			long result = queries(mgr, stops, cars);
+			long indexed = System.nanoTime()-start;
+			start = System.nanoTime();
+			long expected = indexOfQueries(bookings, stops, cars);
+			long scanned = System.nanoTime()-start;
+			if(result!=expected) throw new IllegalStateException("Different results: " + result + " " + expected);
+			System.out.printf("round %d  stop index %8.1f ms  indexOf %8.1f ms  speedup %5.1fx%n", round, indexed/1e6, scanned/1e6, scanned/(double) indexed);
+		}
+	}
+
+	private static long queries(TrainManager mgr, List<String> stops, int cars) {
+		long result = 0;
+		for(int c=0; c<cars; ++c) result += mgr.listBookings("C" + c, "1A").size();
+		for(String stop : stops) {
+			result += mgr.setLastStop(stop);
+			for(int c=0; c<CHECKED_CARS; ++c) if(mgr.checkSeat("C" + c, "2B")!=null) ++result;
+		}
+		return result;
+	}
+
+	private static long indexOfQueries(List<Booking> bookings, List<String> stops, int cars) {
+		long result = 0;
+		for(int c=0; c<cars; ++c) {
+			String car = "C" + c;
+			result += bookings.stream().filter(book->book.getCar().getId().equals(car) && book.getSeat().equals("1A")).sorted(Comparator.comparingInt(book->stops.indexOf(book.getBegin()))).map(book->book.getTrip()+":"+book.getSsn()).collect(Collectors.toList()).size();
+		}
+		for(String lastStop : stops) {
+			result += bookings.stream().filter(book->stops.indexOf(book.getEnd())>stops.indexOf(lastStop) && stops.indexOf(book.getBegin())<=stops.indexOf(lastStop)).count();
+			for(int c=0; c<CHECKED_CARS; ++c) {
+				String car = "C" + c;
+				if(bookings.stream().filter(book->book.getCar().getId().equals(car) && book.getSeat().equals("2B")).filter(book->stops.indexOf(book.getBegin())<=stops.indexOf(lastStop) && stops.indexOf(book.getEnd())>stops.indexOf(lastStop)).map(Booking::getBookingcode).findFirst().isPresent()) ++result;
+			}
+		}
+		return result;
+	}
+}
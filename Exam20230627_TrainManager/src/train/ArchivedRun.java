@@ -0,0 +1,53 @@
+package train;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Bookings of a completed train run, kept after its seat occupancy
+ * and boarding structures have been released.
+ */
+public class ArchivedRun {
+    private final String serviceId;
+    private final LocalDate date;
+    private final Map<String,Booking> bookings;
+
+    ArchivedRun(String serviceId, LocalDate date, Collection<Booking> bookings) {
+        this.serviceId = serviceId;
+        this.date = date;
+        Map<String,Booking> byCode= new HashMap<>(2*bookings.size());
+        for(Booking booking: bookings) byCode.put(booking.getBookingcode(), booking);
+        this.bookings = Collections.unmodifiableMap(byCode);
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getNumBookings() {
+        return bookings.size();
+    }
+
+    /**
+     * @param bookingID id of booking
+     * @return the booking, {@code null} if not found
+     */
+    public Booking getBooking(String bookingID) {
+        return bookings.get(bookingID);
+    }
+
+    public Collection<Booking> getBookings() {
+        return bookings.values();
+    }
+
+    /**
+     * @return the number of bookings that have been checked on board
+     */
+    public long getCheckedCount() {
+        return bookings.values().stream().filter(Booking::isChecked).count();
+    }
+}
@@ -0,0 +1,94 @@
+package train;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Tracks the passengers on board as the train moves from stop to stop.
+ * <p>
+ * Bookings are bucketed by the stop where the passenger boards and the stop
+ * where they alight, and the booking on board is kept for each seat of each
+ * car. Moving the last stop only processes the buckets of the stops passed,
+ * forward or backward, instead of rescanning all the bookings.
+ * <p>
+ * Bookings can be added concurrently: they are queued without locking and
+ * moved to the buckets by the boarding operations, which are synchronized.
+ */
+class BoardingEngine {
+    private final List<List<Booking>> boarding= new ArrayList<>();
+    private final List<List<Booking>> alighting= new ArrayList<>();
+    private final Map<Car,Booking[]> onBoard= new HashMap<>();
+    private final Queue<Booking> pending= new ConcurrentLinkedQueue<>();
+    private int lastStop=-1;
+    private int passengers=0;
+
+    synchronized void ensureStops(int stops){
+        while(boarding.size()<stops){
+            boarding.add(new ArrayList<>());
+            alighting.add(new ArrayList<>());
+        }
+    }
+
+    void add(Booking booking){
+        pending.add(booking);
+    }
+
+    private void drain(){
+        Booking booking;
+        while((booking=pending.poll())!=null) insert(booking);
+    }
+
+    private void insert(Booking booking){
+        boarding.get(booking.getBeginIndex()).add(booking);
+        alighting.get(booking.getEndIndex()).add(booking);
+        if(booking.getBeginIndex()<=lastStop && booking.getEndIndex()>lastStop) board(booking);
+    }
+
+    /**
+     * Moves the last stop, boarding and alighting the passengers of the stops in between
+     *
+     * @param stop the new last stop
+     * @return the number of passengers on board after the stop
+     */
+    synchronized int moveTo(int stop){
+        drain();
+        while(lastStop<stop){
+            lastStop++;
+            for(Booking booking: alighting.get(lastStop)) alight(booking);
+            for(Booking booking: boarding.get(lastStop)) if(booking.getEndIndex()>lastStop) board(booking);
+        }
+        while(lastStop>stop){
+            for(Booking booking: boarding.get(lastStop)) if(booking.getEndIndex()>lastStop) alight(booking);
+            for(Booking booking: alighting.get(lastStop)) if(booking.getBeginIndex()<lastStop) board(booking);
+            lastStop--;
+        }
+        return passengers;
+    }
+
+    private void board(Booking booking){
+        Car car=booking.getCar();
+        onBoard.computeIfAbsent(car, c->new Booking[c.getNseats()])[car.seatIndex(booking.getSeat())]=booking;
+        passengers++;
+    }
+
+    private void alight(Booking booking){
+        Booking[] seats=onBoard.get(booking.getCar());
+        int seat=booking.getCar().seatIndex(booking.getSeat());
+        if(seats==null || seats[seat]!=booking) return;
+        seats[seat]=null;
+        passengers--;
+    }
+
+    /**
+     * @return the booking of the passenger on the seat after the last stop, {@code null} if none
+     */
+    synchronized Booking onBoard(Car car, int seat){
+        drain();
+        Booking[] seats=onBoard.get(car);
+        return seats==null ? null : seats[seat];
+    }
+
+    synchronized int getLastStop() {
+        return lastStop;
+    }
+}
@@ -7,17 +7,21 @@ public class Booking {
     private final String surname;
     private final String begin;
     private final String end;
+    private final int beginIndex;
+    private final int endIndex;
     private Car car;
     private final String seat;
     private boolean checked;
     public Booking(String bookingcode, String ssn, String name, String surname, String begin, String end, Car car,
-            String seat) {
+            String seat, int beginIndex, int endIndex) {
         this.bookingcode = bookingcode;
         this.ssn = ssn;
         this.name = name;
         this.surname = surname;
         this.begin = begin;
         this.end = end;
+        this.beginIndex = beginIndex;
+        this.endIndex = endIndex;
         this.car = car;
         this.seat = seat;
         this.checked=false;
@@ -40,6 +44,18 @@ public class Booking {
     public String getEnd() {
         return end;
     }
+    /**
+     * @return the position of the initial stop along the train path
+     */
+    public int getBeginIndex() {
+        return beginIndex;
+    }
+    /**
+     * @return the position of the final stop along the train path
+     */
+    public int getEndIndex() {
+        return endIndex;
+    }
     public Car getCar() {
         return car;
     }
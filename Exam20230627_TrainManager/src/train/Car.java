@@ -5,11 +5,14 @@ public class Car {
     private final int rows;
     private final char lastSeat;
     private String klass;
+    private final String[] seatLabels;
     public Car(String id, int rows, char lastSeat, String klass) {
         this.id = id;
         this.rows = rows;
         this.lastSeat = lastSeat;
         this.klass = klass;
+        this.seatLabels = new String[getNseats()];
+        for(int i=0;i<seatLabels.length;i++) seatLabels[i]=(i/getSeatsPerRow()+1)+String.valueOf((char)('A'+i%getSeatsPerRow()));
     }
     public String getId() {
         return id;
@@ -24,6 +27,39 @@ public class Car {
         return klass;
     }
     public int getNseats(){
-        return rows*(1+(lastSeat-'A'));
+        return rows*getSeatsPerRow();
+    }
+    public int getSeatsPerRow(){
+        return 1+(lastSeat-'A');
+    }
+
+    /**
+     * @param index the seat position, as returned by {@link #seatIndex}
+     * @return the seat code
+     */
+    String getSeatLabel(int index){
+        return seatLabels[index];
+    }
+
+    /**
+     * Converts a seat code such as "8B" to its position in the car,
+     * seats are numbered row by row starting from 0
+     *
+     * @param seat the seat code
+     * @return the seat position, -1 if the seat is not in the car
+     */
+    int seatIndex(String seat){
+        int length=seat.length();
+        if(length<2) return -1;
+        char letter=seat.charAt(length-1);
+        if(letter<'A' || letter>lastSeat) return -1;
+        int row=0;
+        for(int i=0;i<length-1;i++){
+            char c=seat.charAt(i);
+            if(c<'0' || c>'9' || row>rows) return -1;
+            row=10*row+(c-'0');
+        }
+        if(row<1 || row>rows) return -1;
+        return (row-1)*getSeatsPerRow()+(letter-'A');
     }
 }
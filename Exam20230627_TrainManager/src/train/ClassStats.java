@@ -0,0 +1,15 @@
+package train;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the seats and bookings of a travel class,
+ * updated as cars are added and seats are booked and checked.
+ * Booking counters can be updated concurrently.
+ */
+class ClassStats {
+    int seats=0;
+    final LongAdder bookedSeats= new LongAdder();
+    final LongAdder occupiedSlots= new LongAdder();
+    final LongAdder checked= new LongAdder();
+}
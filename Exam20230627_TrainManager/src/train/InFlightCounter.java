@@ -0,0 +1,45 @@
+package train;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter of the operations in progress on an object that can be closed.
+ * <p>
+ * The count is split in stripes, each on its own cache line, and a thread
+ * always enters and exits on the same stripe, chosen from its id: threads
+ * on different stripes never write to the same word, and a stripe is never
+ * negative. An operation enters before checking whether the object is closed,
+ * so once {@link #awaitZero} has seen all the stripes empty after closing,
+ * every operation that found the object open has exited.
+ */
+class InFlightCounter {
+	private static final int STRIPES= 8;
+	private static final int PAD= 8;
+	private final AtomicLongArray counts= new AtomicLongArray(STRIPES*PAD);
+
+	private static int stripe(){
+		return (Long.hashCode(Thread.currentThread().getId()) & (STRIPES-1))*PAD;
+	}
+
+	/**
+	 * @return the stripe to be passed to {@link #exit}
+	 */
+	int enter(){
+		int stripe=stripe();
+		counts.incrementAndGet(stripe);
+		return stripe;
+	}
+
+	void exit(int stripe){
+		counts.decrementAndGet(stripe);
+	}
+
+	/**
+	 * Waits until each stripe has been seen empty
+	 */
+	void awaitZero(){
+		for(int i=0;i<STRIPES;i++){
+			while(counts.get(i*PAD)!=0) Thread.onSpinWait();
+		}
+	}
+}
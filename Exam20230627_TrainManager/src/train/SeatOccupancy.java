@@ -0,0 +1,166 @@
+package train;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Occupancy of the seats of a car over the segments of the train path.
+ * <p>
+ * Each seat has a bitset with one bit per segment, stored in consecutive
+ * words of a single array; segment {@code s} is the part of the path between
+ * stop {@code s} and stop {@code s+1}, so that a trip from stop {@code b} to
+ * stop {@code e} occupies the segments from {@code b} to {@code e-1}.
+ * Checking and occupying a trip costs a few word operations per 64 segments,
+ * independently of the number of bookings.
+ * <p>
+ * The same occupancy is also kept transposed, as a bitset of the occupied
+ * seats for each segment, so that the free seats for a trip are found by
+ * merging the bitsets of its segments.
+ * <p>
+ * Seats can be occupied concurrently. While the path has at most 64
+ * segments, each seat is a single word set with a compare-and-set. On longer
+ * paths the words of a seat are checked and set holding a lock of the seat,
+ * so that a trip never holds some of its words while it checks the others,
+ * which could reject another trip overlapping only the words of a trip that
+ * is going to fail. Resizing with {@link #ensureSegments} is not thread-safe.
+ */
+class SeatOccupancy {
+    private static final VarHandle WORD= MethodHandles.arrayElementVarHandle(long[].class);
+    private final int seats;
+    private final int seatWords;
+    private int segments;
+    private int words;
+    private long[] bits;
+    private long[] bySegment;
+    private final long[] booked;
+    private Object[] seatLocks;
+
+    SeatOccupancy(int seats, int segments) {
+        this.seats = seats;
+        this.seatWords = Math.max(1, (seats+63)>>>6);
+        this.segments = Math.max(0, segments);
+        this.words = wordsFor(segments);
+        this.bits = new long[seats*words];
+        this.bySegment = new long[this.segments*seatWords];
+        this.booked = new long[seatWords];
+        if(words>1) createLocks();
+    }
+
+    private void createLocks(){
+        seatLocks= new Object[seats];
+        for(int seat=0;seat<seats;seat++) seatLocks[seat]= new Object();
+    }
+
+    private static int wordsFor(int segments){
+        return Math.max(1, (segments+63)>>>6);
+    }
+
+    /**
+     * Makes room for the given number of segments, keeping the current occupancy
+     */
+    void ensureSegments(int segments){
+        if(segments>this.segments){
+            bySegment=Arrays.copyOf(bySegment, segments*seatWords);
+            this.segments=segments;
+        }
+        int needed=wordsFor(segments);
+        if(needed<=words) return;
+        long[] grown= new long[seats*needed];
+        for(int seat=0;seat<seats;seat++) System.arraycopy(bits, seat*words, grown, seat*needed, words);
+        bits=grown;
+        words=needed;
+        if(seatLocks==null) createLocks();
+    }
+
+    /**
+     * @return the bits of the given word covered by the segments from {@code from} to {@code to-1}
+     */
+    static long mask(int word, int from, int to){
+        int base=word<<6;
+        int lo=Math.max(from, base)-base;
+        int hi=Math.min(to, base+64)-base;
+        if(lo>=hi) return 0L;
+        return (hi==64 ? -1L : (1L<<hi)-1) & (-1L<<lo);
+    }
+
+    /**
+     * @return {@code true} if no segment from {@code from} to {@code to-1} of the seat is occupied
+     */
+    boolean isFree(int seat, int from, int to){
+        int offset=seat*words;
+        for(int w=from>>>6;w<words && w<<6<to;w++){
+            if(((long) WORD.getVolatile(bits, offset+w) & mask(w, from, to))!=0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Occupies the segments from {@code from} to {@code to-1} of the seat if they are all free,
+     * may be called concurrently
+     *
+     * @return {@code false} if some segment is already occupied
+     */
+    boolean tryOccupy(int seat, int from, int to){
+        int offset=seat*words;
+        if(words==1){
+            if(!setBits(offset, mask(0, from, to))) return false;
+        }else{
+            synchronized(seatLocks[seat]){
+                if(!isFree(seat, from, to)) return false;
+                for(int w=from>>>6;w<words && w<<6<to;w++) WORD.getAndBitwiseOr(bits, offset+w, mask(w, from, to));
+            }
+        }
+        long seatBit=1L<<(seat & 63);
+        for(int segment=from;segment<to;segment++) WORD.getAndBitwiseOr(bySegment, segment*seatWords+(seat>>>6), seatBit);
+        return true;
+    }
+
+    /**
+     * Sets the bits of the mask in a word if none of them is set
+     */
+    private boolean setBits(int index, long mask){
+        long current;
+        do{
+            current=(long) WORD.getVolatile(bits, index);
+            if((current & mask)!=0) return false;
+        }while(!WORD.compareAndSet(bits, index, current, current | mask));
+        return true;
+    }
+
+    /**
+     * Finds the seats that are free in all the segments from {@code from} to {@code to-1}
+     *
+     * @return a bitset of the free seats, one bit per seat
+     */
+    long[] freeSeats(int from, int to){
+        long[] free= new long[seatWords];
+        for(int segment=from;segment<to;segment++){
+            int offset=segment*seatWords;
+            for(int w=0;w<seatWords;w++) free[w]|=(long) WORD.getVolatile(bySegment, offset+w);
+        }
+        for(int w=0;w<seatWords;w++) free[w]=~free[w];
+        if((seats & 63)!=0) free[seatWords-1]&=(1L<<(seats & 63))-1;
+        return free;
+    }
+
+    /**
+     * Records that the seat has been booked at least once, may be called concurrently
+     *
+     * @return {@code true} if it is the first booking of the seat
+     */
+    boolean markBooked(int seat){
+        long bit=1L<<(seat & 63);
+        return ((long) WORD.getAndBitwiseOr(booked, seat>>>6, bit) & bit)==0;
+    }
+
+    void clear(){
+        Arrays.fill(bits, 0L);
+        Arrays.fill(bySegment, 0L);
+        Arrays.fill(booked, 0L);
+    }
+
+    int getSeats() {
+        return seats;
+    }
+}
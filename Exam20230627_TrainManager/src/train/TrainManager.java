@@ -1,14 +1,53 @@
 package train;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.*;;
+
+/**
+ * Train booking and passenger check manager.
+ * <p>
+ * Once classes, cars and stops are defined, seats can be booked and searched
+ * concurrently by many threads: seat conflicts are resolved with a
+ * compare-and-set on the occupancy words of the seat, without locking.
+ * Bookings in progress are tracked by a striped counter, which closing the
+ * train to new bookings waits on. Passenger checks are expected to be
+ * performed by a single thread.
+ */
 public class TrainManager {
 	private Set<String> classesSet= new HashSet<>();
-	private Map<String,Car> carsMap= new HashMap<>();
+	private Map<String,Car> carsMap= new ConcurrentHashMap<>();
 	private List<String> stopsList= new ArrayList<>();
-	private Map<String,Booking> bookingsMap= new HashMap<>();
-	private int bookingCounter=0;
-	private String lastStop;
+	private Map<String,Integer> stopIndexMap= new ConcurrentHashMap<>();
+	private Map<String,Booking> bookingsMap= new ConcurrentHashMap<>();
+	private Map<String,SeatOccupancy> occupancyMap= new ConcurrentHashMap<>();
+	private Map<String,ClassStats> classStatsMap= new ConcurrentHashMap<>();
+	private BoardingEngine boarding= new BoardingEngine();
+	private final AtomicInteger bookingCounter= new AtomicInteger();
+	private final InFlightCounter inFlight= new InFlightCounter();
+	private volatile boolean closed=false;
+
+	public TrainManager() {
+	}
+
+	/**
+	 * Creates the manager of a new run of a train, with the classes, cars
+	 * and stops of the given one and no bookings. Cars are shared.
+	 * 
+	 * @param service the manager defining the train
+	 */
+	TrainManager(TrainManager service) {
+		classesSet.addAll(service.classesSet);
+		for(Car car: service.carsMap.values()){
+			carsMap.put(car.getId(), car);
+			occupancyMap.put(car.getId(), new SeatOccupancy(car.getNseats(), service.stopsList.size()-1));
+			classStatsMap.computeIfAbsent(car.getKlass(), k->new ClassStats()).seats+=car.getNseats();
+		}
+		stopsList.addAll(service.stopsList);
+		stopIndexMap.putAll(service.stopIndexMap);
+		boarding.ensureStops(stopsList.size());
+	}
 //R1
 	/**
 	 * add a set of travel classes to the list of classes
@@ -47,6 +86,8 @@ public class TrainManager {
 		if(carsMap.containsKey(id)) throw new TrainException();
 		if(!classesSet.contains(klass)) throw new TrainException();
 		carsMap.put(id,new Car(id, rows, lastSeat, klass));
+		occupancyMap.put(id, new SeatOccupancy(carsMap.get(id).getNseats(), stopsList.size()-1));
+		classStatsMap.computeIfAbsent(klass, k->new ClassStats()).seats+=carsMap.get(id).getNseats();
 		return carsMap.get(id).getNseats();
 	}
 
@@ -80,10 +121,23 @@ public class TrainManager {
 	 * @return the number of segments defined
 	 */
 	public int defineStops(String... stops) {
-		stopsList.addAll(Arrays.asList(stops));
+		for(String stop: stops){
+			stopIndexMap.putIfAbsent(stop, stopsList.size());
+			stopsList.add(stop);
+		}
+		for(SeatOccupancy occupancy: occupancyMap.values()) occupancy.ensureSegments(stopsList.size()-1);
+		boarding.ensureStops(stopsList.size());
 		return stopsList.size()-1;
 	}
 	
+	/**
+	 * @return the position of the stop along the train path, -1 if not a stop
+	 */
+	private int stopIndex(String stop){
+		Integer index=stopIndexMap.get(stop);
+		return index==null ? -1 : index;
+	}
+
 	/**
 	 * retrieves the available seats on a given trip from source to destination.
 	 * The returned map contains an entry for each car that has seats
@@ -98,24 +152,20 @@ public class TrainManager {
 	 * @return the available seats by car
 	 */
 	public Map<String, List<String>> findSeats(String begin, String end, String klass) {
-		return carsMap.values().stream()
-            .filter(car -> car.getKlass().equals(klass))
-            .collect(Collectors.toMap(
-                Car::getId, // ID della carrozza
-                car -> {
-                    Set<String> bookedSeats = bookingsMap.values().stream()
-                        .filter(book -> book.getCar().getId().equals(car.getId())
-                                && stopsList.indexOf(book.getBegin()) <= stopsList.indexOf(begin)
-                                && stopsList.indexOf(book.getEnd()) >= stopsList.indexOf(begin))
-                        .map(Booking::getSeat)
-                        .collect(Collectors.toSet());
-						List<String> allseats= new ArrayList<>();
-						for(int i=1;i<=car.getRows();i++) for(char j='A';j<=car.getLastSeat();j++)  allseats.add(String.format("%d%c", i,j));
-                    return allseats.stream()
-                        .filter(seat -> !bookedSeats.contains(seat))
-                        .collect(Collectors.toList());
-                }
-            ));
+		int from=stopIndex(begin);
+		int to=stopIndex(end);
+		Map<String, List<String>> seats= new HashMap<>();
+		if(from<0 || to<from) return seats;
+		for(Car car: carsMap.values()){
+			if(!car.getKlass().equals(klass)) continue;
+			long[] free=occupancyMap.get(car.getId()).freeSeats(from, to);
+			List<String> available= new ArrayList<>();
+			for(int w=0;w<free.length;w++){
+				for(long word=free[w];word!=0;word&=word-1) available.add(car.getSeatLabel((w<<6)+Long.numberOfTrailingZeros(word)));
+			}
+			seats.put(car.getId(), available);
+		}
+		return seats;
 	}
 
 	/**
@@ -132,24 +182,57 @@ public class TrainManager {
 	 * @return a unique booking code
 	 * @throws TrainException in case the car or seat are not valid,
 	 * 						  the stops are not valid, 
-	 * 						  or the seat is not available for all the segments of the trip
+	 * 						  or the seat is not available for all the segments of the trip,
+	 * 						  or the train has been closed to bookings
 	 */
 	public String bookSeat(String ssn, String name, String surname, 
 						   String begin, String end, String car, String seat) throws TrainException {
-		
+		int stripe=inFlight.enter();
+		try{
+			if(closed) throw new TrainException();
+			return book(ssn, name, surname, begin, end, car, seat);
+		}finally{
+			inFlight.exit(stripe);
+		}
+	}
+
+	private String book(String ssn, String name, String surname,
+						String begin, String end, String car, String seat) throws TrainException {
 		if(!carsMap.containsKey(car)) throw new TrainException();
-		if(!stopsList.contains(begin)) throw new TrainException();
-		if(!stopsList.contains(end)) throw new TrainException();
-		if(stopsList.indexOf(end)<stopsList.indexOf(begin)) throw new TrainException();
-		String [] seatparts=seat.split("");
-		if(carsMap.get(car).getRows()<Integer.parseInt(seatparts[0])) throw new TrainException();
-		if(seat.charAt(seat.length()-1)>carsMap.get(car).getLastSeat()) throw new TrainException();
-		if(bookingsMap.values().stream().filter(book->book.getCar().getId().equals(car) && book.getSeat().equals(seat)).anyMatch(book->{int startindex=stopsList.indexOf(book.getBegin()); int endindex=stopsList.indexOf(book.getEnd()); return startindex<stopsList.indexOf(end) && stopsList.indexOf(begin)<endindex;})) throw new TrainException();
-		String code= String.format("B%d",++bookingCounter);
-		bookingsMap.put(code, new Booking(code, ssn, name, surname, begin, end, carsMap.get(car), seat));
+		int from=stopIndex(begin);
+		int to=stopIndex(end);
+		if(from<0 || to<0 || to<from) throw new TrainException();
+		int seatIndex=carsMap.get(car).seatIndex(seat);
+		if(seatIndex<0) throw new TrainException();
+		if(!occupancyMap.get(car).tryOccupy(seatIndex, from, to)) throw new TrainException();
+		String code= String.format("B%d",bookingCounter.incrementAndGet());
+		Booking booking= new Booking(code, ssn, name, surname, begin, end, carsMap.get(car), seat, from, to);
+		bookingsMap.put(code, booking);
+		boarding.add(booking);
+		ClassStats stats=classStatsMap.get(booking.getCar().getKlass());
+		stats.occupiedSlots.add(to-from);
+		if(occupancyMap.get(car).markBooked(seatIndex)) stats.bookedSeats.increment();
 		return code;
 	}
 
+	/**
+	 * @return all the bookings of the train
+	 */
+	Collection<Booking> getBookings() {
+		return bookingsMap.values();
+	}
+
+	/**
+	 * Closes the train to new bookings, waiting for the ones in progress
+	 * 
+	 * @return all the bookings of the train, none can be added later
+	 */
+	Collection<Booking> close() {
+		closed=true;
+		inFlight.awaitZero();
+		return getBookings();
+	}
+
 	/**
 	 * retrieves the car of a given booking
 	 * 
@@ -205,7 +288,7 @@ public class TrainManager {
 	 * @return list of bookings
 	 */
 	public Collection<String> listBookings(String car, String seat) {
-		return bookingsMap.values().stream().filter(book->book.getCar().getId().equals(car) && book.getSeat().equals(seat)).sorted(Comparator.comparingInt(book->stopsList.indexOf(book.getBegin()))).map(book->book.getTrip()+":"+book.getSsn()).collect(Collectors.toList());
+		return bookingsMap.values().stream().filter(book->book.getCar().getId().equals(car) && book.getSeat().equals(seat)).sorted(Comparator.comparingInt(Booking::getBeginIndex)).map(book->book.getTrip()+":"+book.getSsn()).collect(Collectors.toList());
 	}
 
 	/**
@@ -217,9 +300,9 @@ public class TrainManager {
 	 * @return the number of total people booked on the train after the stop
 	 */
 	public int setLastStop(String stop) {
-		if(!stopsList.contains(stop)) return -1;
-		this.lastStop=stop;
-		return (int)bookingsMap.values().stream().filter(book->stopsList.indexOf(book.getEnd())>stopsList.indexOf(lastStop) && stopsList.indexOf(book.getBegin())<=stopsList.indexOf(lastStop)).count();
+		int index=stopIndex(stop);
+		if(index<0) return -1;
+		return boarding.moveTo(index);
 	}
 
 
@@ -236,9 +319,17 @@ public class TrainManager {
 	 * @return booking id
 	 */
 	public String checkSeat(String car, String seat) {
-		String id=bookingsMap.values().stream().filter(book->book.getCar().getId().equals(car) && book.getSeat().equals(seat)).filter(book->stopsList.indexOf(book.getBegin())<=stopsList.indexOf(lastStop) && stopsList.indexOf(book.getEnd())>stopsList.indexOf(lastStop)).map(Booking::getBookingcode).findFirst().orElse(null);
-		if(id!=null) bookingsMap.get(id).setChecked(true);
-		return id; 
+		Car searchedCar=carsMap.get(car);
+		if(searchedCar==null) return null;
+		int seatIndex=searchedCar.seatIndex(seat);
+		if(seatIndex<0) return null;
+		Booking booking=boarding.onBoard(searchedCar, seatIndex);
+		if(booking==null) return null;
+		if(!booking.isChecked()){
+			booking.setChecked(true);
+			classStatsMap.get(searchedCar.getKlass()).checked.increment();
+		}
+		return booking.getBookingcode();
 	}
 
 
@@ -251,7 +342,8 @@ public class TrainManager {
 	 * @return	fill ratio
 	 */
 	public double showFillRatio(String klass) {
-		return bookingsMap.values().stream().filter(book->book.getCar().getKlass().equals(klass)).map(book->book.getCar()+":"+book.getSeat()).distinct().count()/(double) carsMap.values().stream().filter(car->car.getKlass().equals(klass)).mapToInt(Car::getNseats).sum();
+		ClassStats stats=classStatsMap.getOrDefault(klass, new ClassStats());
+		return stats.bookedSeats.sum()/(double) stats.seats;
 	}
 
 	/**
@@ -262,7 +354,7 @@ public class TrainManager {
 	 * @return the map class : check count
 	 */
 	public Map<String, Long> checkCoverage() {
-		return carsMap.values().stream().map(Car::getKlass).distinct().collect(Collectors.toMap(klass->klass,klass->bookingsMap.values().stream().filter(book->book.getCar().getKlass().equals(klass) && book.isChecked()).count()));
+		return classStatsMap.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e->e.getValue().checked.sum()));
 	} 
 
 	/**
@@ -277,12 +369,8 @@ public class TrainManager {
 	 * @return	occupation ratio
 	 */
 	public double showOccupationRatio(String klass) {
-		int totalnumber=0;
-		for(int i=0;i<stopsList.size();i++){
-			final int index=i;
-			totalnumber+=(int)bookingsMap.values().stream().filter(book->book.getCar().getKlass().equals(klass)  &&   index>=stopsList.indexOf(book.getBegin()) && stopsList.indexOf(book.getEnd())<=index).count();
-		}
-		return totalnumber/(double)((stopsList.size()-1)*carsMap.values().stream().filter(car->car.getKlass().equals(klass)).mapToInt(Car::getNseats).sum());
+		ClassStats stats=classStatsMap.getOrDefault(klass, new ClassStats());
+		return stats.occupiedSlots.sum()/(double)((stopsList.size()-1)*(long)stats.seats);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,243 @@
+package train;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Manager of the runs of many trains over a booking horizon.
+ * <p>
+ * Each train service is defined once, through a {@link TrainManager} holding
+ * its classes, cars and stops, and is scheduled on a set of dates. The run of
+ * a service on a date gets its own manager, with its own seat occupancy, only
+ * when it is first booked: a scheduled run that has not been booked costs a
+ * single bit. Once a train has completed its trip its run can be archived,
+ * keeping only the bookings.
+ * <p>
+ * Instances are thread-safe. Services must be fully defined before their
+ * runs are booked. Archiving closes a run to new bookings before copying
+ * them, so a booking racing with the archiving is either archived or
+ * rejected.
+ */
+public class TrainNetwork {
+	private Map<String,Service> servicesMap= new ConcurrentHashMap<>();
+
+	private static class Service {
+		final String id;
+		final TrainManager definition= new TrainManager();
+		private BitSet days= new BitSet();
+		private int firstDay=0;
+		private int archivedBefore=Integer.MIN_VALUE;
+		final ConcurrentSkipListMap<LocalDate,TrainManager> runs= new ConcurrentSkipListMap<>();
+		final ConcurrentSkipListMap<LocalDate,ArchivedRun> archive= new ConcurrentSkipListMap<>();
+		Service(String id) {
+			this.id = id;
+		}
+
+		/**
+		 * Scheduled days are bits of a bitset starting from the first scheduled day
+		 */
+		boolean isScheduled(int day){
+			return day>=firstDay && days.get(day-firstDay);
+		}
+
+		boolean isArchived(int day){
+			return day<archivedBefore;
+		}
+
+		void schedule(int day){
+			if(days.isEmpty()) firstDay=day;
+			if(day<firstDay){
+				BitSet shifted= new BitSet();
+				days.stream().forEach(i->shifted.set(i+firstDay-day));
+				days=shifted;
+				firstDay=day;
+			}
+			days.set(day-firstDay);
+		}
+
+		/**
+		 * The bitset is rebased on the first day kept, so that the words
+		 * of the days archived are freed
+		 */
+		void unscheduleBefore(int day){
+			archivedBefore=Math.max(archivedBefore, day);
+			if(day<=firstDay) return;
+			days=days.get(day-firstDay, Math.max(day-firstDay, days.length()));
+			firstDay=day;
+		}
+
+		int span(){
+			return days.length();
+		}
+	}
+
+	private static int day(LocalDate date){
+		return Math.toIntExact(date.toEpochDay());
+	}
+
+	/**
+	 * adds a new train service.
+	 * The returned manager must be used to define the classes, cars and stops
+	 * of the train, which are copied into each run when it is first booked.
+	 * It must not be used for bookings.
+	 * 
+	 * @param serviceId	unique id of the service
+	 * @return the manager defining the train
+	 * @throws TrainException in case of duplicate id
+	 */
+	public TrainManager defineService(String serviceId) throws TrainException {
+		Service service= new Service(serviceId);
+		if(servicesMap.putIfAbsent(serviceId, service)!=null) throw new TrainException();
+		return service.definition;
+	}
+
+	private Service getService(String serviceId) throws TrainException {
+		Service service=servicesMap.get(serviceId);
+		if(service==null) throw new TrainException();
+		return service;
+	}
+
+	/**
+	 * schedules the runs of a service on all the dates in a range.
+	 * Dates already scheduled, or before a date whose runs have been
+	 * archived, are ignored.
+	 * 
+	 * @param serviceId	id of the service
+	 * @param from		first date
+	 * @param to		last date, included
+	 * @return the number of runs newly scheduled
+	 * @throws TrainException in case of unknown service or invalid range
+	 */
+	public int scheduleRuns(String serviceId, LocalDate from, LocalDate to) throws TrainException {
+		Service service=getService(serviceId);
+		if(to.isBefore(from)) throw new TrainException();
+		int count=0;
+		synchronized(service){
+			for(LocalDate date=from;!date.isAfter(to);date=date.plusDays(1)){
+				if(service.isScheduled(day(date)) || service.isArchived(day(date))) continue;
+				service.schedule(day(date));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return {@code true} if the service runs on the date and has not been archived
+	 */
+	public boolean isScheduled(String serviceId, LocalDate date) {
+		Service service=servicesMap.get(serviceId);
+		if(service==null) return false;
+		synchronized(service){
+			return service.isScheduled(day(date));
+		}
+	}
+
+	/**
+	 * retrieves the manager of the run of a service on a date,
+	 * creating it if the run has not been booked yet
+	 * 
+	 * @param serviceId	id of the service
+	 * @param date		date of the run
+	 * @return the manager of the run
+	 * @throws TrainException in case of unknown service or if the run is not scheduled
+	 */
+	public TrainManager getRun(String serviceId, LocalDate date) throws TrainException {
+		Service service=getService(serviceId);
+		TrainManager run=service.runs.get(date);
+		if(run!=null) return run;
+		synchronized(service){
+			if(!service.isScheduled(day(date))) throw new TrainException();
+			return service.runs.computeIfAbsent(date, d->new TrainManager(service.definition));
+		}
+	}
+
+	/**
+	 * Book a seat on the run of a service on a date,
+	 * as {@link TrainManager#bookSeat}
+	 * 
+	 * @return a booking code, unique within the run
+	 * @throws TrainException in case the run is not scheduled or has been archived,
+	 * 						  or the booking is not valid
+	 */
+	public String bookSeat(String serviceId, LocalDate date, String ssn, String name, String surname,
+						   String begin, String end, String car, String seat) throws TrainException {
+		return getRun(serviceId, date).bookSeat(ssn, name, surname, begin, end, car, seat);
+	}
+
+	/**
+	 * retrieves the available seats on the run of a service on a date,
+	 * as {@link TrainManager#findSeats}. A run that has not been booked
+	 * yet is not created.
+	 * 
+	 * @throws TrainException in case the run is not scheduled
+	 */
+	public Map<String, List<String>> findSeats(String serviceId, LocalDate date, String begin, String end, String klass) throws TrainException {
+		Service service=getService(serviceId);
+		TrainManager run=service.runs.get(date);
+		if(run!=null) return run.findSeats(begin, end, klass);
+		if(!isScheduled(serviceId, date)) throw new TrainException();
+		return service.definition.findSeats(begin, end, klass);
+	}
+
+	/**
+	 * retrieves the number of days covered by the schedule of a service,
+	 * from its first day not archived to its last scheduled day
+	 * 
+	 * @param serviceId	id of the service
+	 * @return the number of days, 0 if nothing is scheduled
+	 * @throws TrainException in case of unknown service
+	 */
+	public int getScheduleSpan(String serviceId) throws TrainException {
+		Service service=getService(serviceId);
+		synchronized(service){
+			return service.span();
+		}
+	}
+
+	/**
+	 * @return the number of runs that have been booked and not archived
+	 */
+	public int getNumActiveRuns() {
+		return servicesMap.values().stream().mapToInt(service->service.runs.size()).sum();
+	}
+
+	/**
+	 * archives the runs of all the services before a date.
+	 * Booked runs are replaced by their bookings, runs never booked are
+	 * unscheduled; in both cases no more bookings are accepted.
+	 * 
+	 * @param date	first date not archived
+	 * @return the number of booked runs archived
+	 */
+	public int archiveRunsBefore(LocalDate date) {
+		int count=0;
+		for(Service service: servicesMap.values()){
+			synchronized(service){
+				service.unscheduleBefore(day(date));
+				Map<LocalDate,TrainManager> completed=service.runs.headMap(date);
+				for(Map.Entry<LocalDate,TrainManager> run: completed.entrySet()){
+					service.archive.put(run.getKey(), new ArchivedRun(service.id, run.getKey(), run.getValue().close()));
+					count++;
+				}
+				completed.clear();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * retrieves the bookings of an archived run
+	 * 
+	 * @param serviceId	id of the service
+	 * @param date		date of the run
+	 * @return the archived run, {@code null} if not archived or never booked
+	 */
+	public ArchivedRun getArchivedRun(String serviceId, LocalDate date) {
+		Service service=servicesMap.get(serviceId);
+		if(service==null) return null;
+		return service.archive.get(date);
+	}
+}
@@ -0,0 +1,221 @@
+package emergency;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Parallel parser of CSV files with a header line.
+ * <p>
+ * The input is split in chunks of lines that are parsed and validated by a
+ * pool of threads; results are collected in file order, so that the caller
+ * can publish all the records at once. Files can be read through a reader or
+ * mapped in memory in windows of at most {@link #WINDOW} bytes, in which case
+ * chunks are views of the mapping and are decoded by the parsing threads.
+ * The parser rejects a line by throwing an {@link IllegalArgumentException}
+ * whose message is reported with the line number.
+ */
+class BulkImporter<T> {
+    static final int CHUNK_LINES=8192;
+    static final int CHUNK_BYTES=1<<20;
+    static final int WINDOW=1<<30;
+    private final Function<String,T> parser;
+    private final int threads;
+
+    BulkImporter(Function<String,T> parser, int threads) {
+        if(threads<1) throw new IllegalArgumentException("Invalid number of threads: "+threads);
+        this.parser = parser;
+        this.threads = threads;
+    }
+
+    /**
+     * Records and rejected lines of a chunk, line numbers are relative to the chunk
+     */
+    private static class Chunk<T> {
+        final List<T> records= new ArrayList<>();
+        final SortedMap<Integer,String> errors= new TreeMap<>();
+        int lines=0;
+    }
+
+    static class Result<T> {
+        final List<T> records= new ArrayList<>();
+        final SortedMap<Integer,String> errors= new TreeMap<>();
+    }
+
+    private interface Source {
+        void submitAll(Function<Callable<Object>,Future<?>> submit) throws IOException;
+    }
+
+    /**
+     * Parses the lines of a reader, skipping the header
+     */
+    Result<T> parse(BufferedReader reader) throws IOException {
+        return run(submit->{
+            if(reader.readLine()==null) return;
+            List<String> lines= new ArrayList<>(CHUNK_LINES);
+            String line;
+            while((line=reader.readLine())!=null){
+                lines.add(line);
+                if(lines.size()==CHUNK_LINES){
+                    String[] chunk=lines.toArray(new String[0]);
+                    submit.apply(()->parseLines(chunk));
+                    lines.clear();
+                }
+            }
+            if(!lines.isEmpty()){
+                String[] chunk=lines.toArray(new String[0]);
+                submit.apply(()->parseLines(chunk));
+            }
+        });
+    }
+
+    /**
+     * Parses the lines of a file mapped in memory, skipping the header
+     */
+    Result<T> parse(Path file) throws IOException {
+        return run(submit->{
+            try(FileChannel channel= FileChannel.open(file, StandardOpenOption.READ)){
+                long size=channel.size();
+                long position=0;
+                boolean header=true;
+                while(position<size){
+                    int length=(int) Math.min(WINDOW, size-position);
+                    MappedByteBuffer window=channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    int end=length;
+                    if(position+length<size){
+                        end=lastLineEnd(window, length);
+                        if(end==0) throw new IOException("Line longer than "+WINDOW+" bytes at offset "+position);
+                    }
+                    int start=0;
+                    if(header){
+                        start=nextLineEnd(window, 0, end);
+                        header=false;
+                    }
+                    while(start<end){
+                        int chunkEnd=nextLineEnd(window, Math.min(start+CHUNK_BYTES, end)-1, end);
+                        MappedByteBuffer chunk=window.slice(start, chunkEnd-start);
+                        submit.apply(()->parseLines(StandardCharsets.UTF_8.decode(chunk).toString()));
+                        start=chunkEnd;
+                    }
+                    position+=end;
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the position after the first line terminator at or after from, end if none
+     */
+    private static int nextLineEnd(MappedByteBuffer buffer, int from, int end){
+        for(int i=from;i<end;i++) if(buffer.get(i)=='\n') return i+1;
+        return end;
+    }
+
+    /**
+     * @return the position after the last line terminator before end, 0 if none
+     */
+    private static int lastLineEnd(MappedByteBuffer buffer, int end){
+        for(int i=end-1;i>=0;i--) if(buffer.get(i)=='\n') return i+1;
+        return 0;
+    }
+
+    private Result<T> run(Source source) throws IOException {
+        ExecutorService parsers= Executors.newFixedThreadPool(threads);
+        Semaphore inFlight= new Semaphore(2*threads);
+        List<Future<?>> chunks= new ArrayList<>();
+        try{
+            source.submitAll(task->{
+                try{
+                    inFlight.acquire();
+                }catch(InterruptedException e){
+                    throw new CancellationException();
+                }
+                Future<?> chunk=parsers.submit(()->{
+                    try{
+                        return task.call();
+                    }finally{
+                        inFlight.release();
+                    }
+                });
+                chunks.add(chunk);
+                return chunk;
+            });
+            Result<T> result= new Result<>();
+            int line=1;
+            for(Future<?> future: chunks){
+                @SuppressWarnings("unchecked")
+                Chunk<T> chunk=(Chunk<T>) future.get();
+                result.records.addAll(chunk.records);
+                for(Map.Entry<Integer,String> error: chunk.errors.entrySet()) result.errors.put(line+error.getKey(), error.getValue());
+                line+=chunk.lines;
+            }
+            return result;
+        }catch(InterruptedException | CancellationException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        }catch(ExecutionException e){
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if(e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IOException(e.getCause());
+        }finally{
+            parsers.shutdownNow();
+        }
+    }
+
+    private Chunk<T> parseLines(String[] lines){
+        Chunk<T> chunk= new Chunk<>();
+        for(String line: lines) parseLine(chunk, line);
+        return chunk;
+    }
+
+    private Chunk<T> parseLines(String text){
+        Chunk<T> chunk= new Chunk<>();
+        int start=0;
+        while(start<text.length()){
+            int end=text.indexOf('\n', start);
+            if(end<0) end=text.length();
+            int last=end>start && text.charAt(end-1)=='\r' ? end-1 : end;
+            parseLine(chunk, text.substring(start, last));
+            start=end+1;
+        }
+        return chunk;
+    }
+
+    private void parseLine(Chunk<T> chunk, String line){
+        chunk.lines++;
+        try{
+            chunk.records.add(parser.apply(line));
+        }catch(IllegalArgumentException e){
+            chunk.errors.put(chunk.lines, e.getMessage());
+        }
+    }
+
+    /**
+     * Splits a line in exactly the given number of fields, ignoring the extra ones
+     *
+     * @throws IllegalArgumentException if there are less fields or a field is empty
+     */
+    static String[] fields(String line, int count){
+        String[] fields= new String[count];
+        int start=0;
+        for(int i=0;i<count;i++){
+            int end=line.indexOf(',', start);
+            if(end<0){
+                if(i<count-1) throw new IllegalArgumentException("Expected "+count+" fields, found "+(i+1));
+                end=line.length();
+            }
+            if(end==start) throw new IllegalArgumentException("Empty field "+(i+1));
+            fields[i]=line.substring(start, end);
+            start=end+1;
+        }
+        return fields;
+    }
+}
@@ -1,11 +1,13 @@
 package emergency;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Department {
     private final String name;
     private final int maxpatients;
-    private List<Patient> patients = new ArrayList<>();
+    private final AtomicInteger occupied = new AtomicInteger();
+    private List<Patient> patients = Collections.synchronizedList(new ArrayList<>());
     public Department(String name, int maxpatients) {
         this.name = name;
         this.maxpatients = maxpatients;
@@ -21,10 +23,32 @@ public class Department {
     }
 
     public boolean isAvailable(){
-        return patients.size()<maxpatients;
+        return occupied.get()<maxpatients;
     }
     
-    public void addPatient(Patient patient){
+    /**
+     * Adds the patient if a bed is available, as {@link #tryAdmit}.
+     * 
+     * @param patient the patient to admit
+     * @return {@code false} if no bed is available
+     */
+    public boolean addPatient(Patient patient){
+        return tryAdmit(patient);
+    }
+
+    /**
+     * Atomically reserves a bed and adds the patient, if a bed is available.
+     * 
+     * @param patient the patient to admit
+     * @return {@code false} if no bed is available
+     */
+    public boolean tryAdmit(Patient patient){
+        int current;
+        do{
+            current=occupied.get();
+            if(current>=maxpatients) return false;
+        }while(!occupied.compareAndSet(current, current+1));
         patients.add(patient);
+        return true;
     }
 }
@@ -3,9 +3,22 @@ package emergency;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Emergency room facade.
+ * <p>
+ * Instances are thread-safe: data is kept in concurrent maps, department beds
+ * are reserved atomically and report codes are generated without locking.
+ */
 public class EmergencyApp {
 
     public enum PatientStatus {
@@ -13,11 +26,24 @@ public class EmergencyApp {
         DISCHARGED,
         HOSPITALIZED
     }
-    Map<String,Professional> professionalMap= new HashMap<>();
-    Map<String,Department> departmentsMap= new HashMap<>();
-    Map<String,Patient> patientsMap= new HashMap<>();
-    Map<String,Report> reportsMap= new HashMap<>();
-    private int reportCounter=0;
+    volatile Map<String,Professional> professionalMap= new ConcurrentHashMap<>();
+    volatile Map<String,Department> departmentsMap= new ConcurrentHashMap<>();
+    Map<String,Patient> patientsMap= new ConcurrentHashMap<>();
+    Map<String,Report> reportsMap= new ConcurrentHashMap<>();
+    Map<String,Collection<Patient>> patientsBySurname= new ConcurrentHashMap<>();
+    Map<String,SortedSet<Patient>> patientsByDate= new ConcurrentHashMap<>();
+    Map<String,ServiceIndex> serviceIndexes= new HashMap<>();
+    Map<PatientStatus,AtomicInteger> statusCounters= new EnumMap<>(PatientStatus.class);
+    Map<String,AtomicInteger> dischargedBySpecialization= new ConcurrentHashMap<>();
+    private final List<Consumer<PatientEvent>> statusListeners= new CopyOnWriteArrayList<>();
+    private static final Comparator<Patient> BY_NAME= Comparator.comparing(Patient::getSurname).thenComparing(Patient::getName).thenComparing(Patient::getFiscalCode);
+    private final AtomicInteger reportCounter= new AtomicInteger();
+    private final Object departmentsLock= new Object();
+
+    public EmergencyApp() {
+        for(PatientStatus status: PatientStatus.values()) statusCounters.put(status, new AtomicInteger());
+    }
+
     /**
      * Add a professional working in the emergency room
      * 
@@ -29,7 +55,11 @@ public class EmergencyApp {
      * @param workingHours
      */
     public void addProfessional(String id, String name, String surname, String specialization, String period) {
-        professionalMap.put(id, new Professional(id, name, surname, period, specialization));
+        synchronized(serviceIndexes){
+            Professional replaced=professionalMap.put(id, new Professional(id, name, surname, period, specialization));
+            if(replaced!=null) serviceIndexes.remove(replaced.getSpecialization());
+            serviceIndexes.remove(specialization);
+        }
     }
 
     /**
@@ -66,7 +96,9 @@ public class EmergencyApp {
      * @throws EmergencyException If no professionals are found with the specified specialization and period.
      */    
     public List<String> getProfessionalsInService(String specialization, String period) throws EmergencyException {
-        List<String> searched= professionalMap.values().stream().filter(p->p.getSpecialization().equals(specialization)).filter(p-> {String[] targetparts=period.split(" to "); String[] professionalparts=p.getPeriod().split(" to "); return professionalparts[0].compareTo(targetparts[0])<=0 && professionalparts[1].compareTo(targetparts[1])>=0;}).map(Professional::getId).collect(Collectors.toList());
+        long[] target=ServiceIndex.parsePeriod(period);
+        if(target==null) throw new EmergencyException();
+        List<String> searched= getServiceIndex(specialization).inService(target[0], target[1]).stream().map(Professional::getId).collect(Collectors.toList());
         if(searched.isEmpty()) throw new EmergencyException();
         return searched;
     }
@@ -79,7 +111,9 @@ public class EmergencyApp {
      * @throws EmergencyException If the department already exists.
      */
     public void addDepartment(String name, int maxPatients) {
-        departmentsMap.put(name, new Department(name, maxPatients));
+        synchronized(departmentsLock){
+            departmentsMap.put(name, new Department(name, maxPatients));
+        }
     }
 
     /**
@@ -148,6 +182,106 @@ public class EmergencyApp {
         return count;
     }
 
+    /**
+     * Imports professionals from a CSV file in the format of {@link #readFromFileProfessionals(Reader)}.
+     * Lines are parsed and validated in parallel; malformed lines, or lines with
+     * an invalid period, are reported instead of stopping the import.
+     * The valid professionals are published all together at the end, so concurrent readers
+     * see either none or all of them. As in {@link #addProfessional}, a professional replaces
+     * the existing one with the same id; an id repeated in the file is imported once, from
+     * its last line.
+     *
+     * @param reader The reader used to read the CSV file.
+     * @param threads The number of parsing threads.
+     * @return The number of distinct professionals imported and the rejected lines.
+     * @throws IOException If there is an error reading from the file.
+     */
+    public ImportReport importProfessionals(Reader reader, int threads) throws IOException {
+        if(reader==null) throw new IOException();
+        return publishProfessionals(new BulkImporter<>(EmergencyApp::parseProfessional, threads).parse(new BufferedReader(reader)));
+    }
+
+    /**
+     * Imports professionals from a CSV file as {@link #importProfessionals(Reader, int)},
+     * the file is mapped in memory and must be UTF-8 encoded.
+     */
+    public ImportReport importProfessionals(Path file, int threads) throws IOException {
+        return publishProfessionals(new BulkImporter<>(EmergencyApp::parseProfessional, threads).parse(file));
+    }
+
+    /**
+     * Imports departments from a CSV file in the format of {@link #readFromFileDepartments(Reader)}.
+     * Lines are parsed and validated in parallel; malformed lines, or lines with
+     * an invalid number of beds, are reported instead of stopping the import.
+     * The valid departments are published all together at the end, so concurrent readers
+     * see either none or all of them. Departments already defined are kept, with their
+     * patients; a name repeated in the file is imported once, from its last line.
+     *
+     * @param reader The reader used to read the CSV file.
+     * @param threads The number of parsing threads.
+     * @return The number of new departments imported and the rejected lines.
+     * @throws IOException If there is an error reading from the file.
+     */
+    public ImportReport importDepartments(Reader reader, int threads) throws IOException {
+        if(reader==null) throw new IOException();
+        return publishDepartments(new BulkImporter<>(EmergencyApp::parseDepartment, threads).parse(new BufferedReader(reader)));
+    }
+
+    /**
+     * Imports departments from a CSV file as {@link #importDepartments(Reader, int)},
+     * the file is mapped in memory and must be UTF-8 encoded.
+     */
+    public ImportReport importDepartments(Path file, int threads) throws IOException {
+        return publishDepartments(new BulkImporter<>(EmergencyApp::parseDepartment, threads).parse(file));
+    }
+
+    static Professional parseProfessional(String line){
+        String[] fields=BulkImporter.fields(line, 5);
+        long[] period=ServiceIndex.parsePeriod(fields[4]);
+        if(period==null || period[0]>period[1]) throw new IllegalArgumentException("Invalid period "+fields[4]);
+        return new Professional(fields[0], fields[1], fields[2], fields[4], fields[3]);
+    }
+
+    static Department parseDepartment(String line){
+        String[] fields=BulkImporter.fields(line, 2);
+        int maxPatients;
+        try{
+            maxPatients=Integer.parseInt(fields[1]);
+        }catch(NumberFormatException e){
+            throw new IllegalArgumentException("Invalid number of patients "+fields[1]);
+        }
+        if(maxPatients<0) throw new IllegalArgumentException("Invalid number of patients "+fields[1]);
+        return new Department(fields[0], maxPatients);
+    }
+
+    /**
+     * The records are added to a copy of the map, which then replaces it
+     * under the lock serializing its writers
+     */
+    private ImportReport publishProfessionals(BulkImporter.Result<Professional> result){
+        Map<String,Professional> imported= new LinkedHashMap<>();
+        for(Professional p: result.records) imported.put(p.getId(), p);
+        synchronized(serviceIndexes){
+            Map<String,Professional> published= new ConcurrentHashMap<>(professionalMap);
+            published.putAll(imported);
+            professionalMap=published;
+            serviceIndexes.clear();
+        }
+        return new ImportReport(imported.size(), result.errors);
+    }
+
+    private ImportReport publishDepartments(BulkImporter.Result<Department> result){
+        Map<String,Department> imported= new LinkedHashMap<>();
+        for(Department d: result.records) imported.put(d.getName(), d);
+        int inserted=0;
+        synchronized(departmentsLock){
+            Map<String,Department> published= new ConcurrentHashMap<>(departmentsMap);
+            for(Department d: imported.values()) if(published.putIfAbsent(d.getName(), d)==null) inserted++;
+            departmentsMap=published;
+        }
+        return new ImportReport(inserted, result.errors);
+    }
+
     /**
      * Registers a new patient in the emergency system if they do not exist.
      * 
@@ -159,9 +293,18 @@ public class EmergencyApp {
      * @param dateTimeAccepted The date and time the patient was accepted into the emergency system.
      */
     public Patient addPatient(String fiscalCode, String name, String surname, String dateOfBirth, String reason, String dateTimeAccepted) {
-        if(patientsMap.containsKey(fiscalCode)) return patientsMap.get(fiscalCode);
+        Patient existing=patientsMap.get(fiscalCode);
+        if(existing!=null) return existing;
         Patient newPatient= new Patient(fiscalCode, name, surname, dateOfBirth, reason, dateTimeAccepted);
-        patientsMap.put(fiscalCode, newPatient);
+        // the admission is counted and notified before the patient can be discharged
+        synchronized(newPatient){
+            existing=patientsMap.putIfAbsent(fiscalCode, newPatient);
+            if(existing!=null) return existing;
+            statusCounters.get(PatientStatus.ADMITTED).incrementAndGet();
+            notifyStatus(new PatientEvent(fiscalCode, null, PatientStatus.ADMITTED));
+        }
+        patientsBySurname.computeIfAbsent(surname, k->new ConcurrentLinkedQueue<>()).add(newPatient);
+        patientsByDate.computeIfAbsent(dateTimeAccepted, k->new ConcurrentSkipListSet<>(BY_NAME)).add(newPatient);
         return newPatient;
     }
 
@@ -173,7 +316,11 @@ public class EmergencyApp {
      *         Returns an empty collection if no match is found.
      */    
     public List<Patient> getPatient(String identifier) throws EmergencyException {
-        return patientsMap.values().stream().filter(p-> p.getFiscalCode().equals(identifier) || p.getSurname().equals(identifier)).collect(Collectors.toList());
+        List<Patient> searched= new ArrayList<>();
+        Patient byCode=patientsMap.get(identifier);
+        if(byCode!=null) searched.add(byCode);
+        for(Patient p: patientsBySurname.getOrDefault(identifier, Collections.emptyList())) if(p!=byCode) searched.add(p);
+        return searched;
     }
 
     /**
@@ -185,7 +332,7 @@ public class EmergencyApp {
      *         Returns an empty list if no patients were accepted on that date.
      */
     public List<String> getPatientsByDate(String date) {
-        return patientsMap.values().stream().filter(p->p.getDateTimeAccepted().compareTo(date)==0).sorted(Comparator.comparing(Patient::getSurname).thenComparing(Patient::getName)).map(Patient::getFiscalCode).collect(Collectors.toList());
+        return patientsByDate.getOrDefault(date, Collections.emptySortedSet()).stream().map(Patient::getFiscalCode).collect(Collectors.toList());
     }
 
     /**
@@ -199,15 +346,25 @@ public class EmergencyApp {
     public String assignPatientToProfessional(String fiscalCode, String specialization) throws EmergencyException {
         Patient searchedPatient=patientsMap.get(fiscalCode);
         if(searchedPatient==null) throw new EmergencyException();
-        Optional<Professional> searchedProfessional=professionalMap.values().stream().filter(p->p.getSpecialization().equals(specialization)).filter(p->{String[] professionalPeriodParts=p.getPeriod().split(" to "); return professionalPeriodParts[0].compareTo(searchedPatient.getDateTimeAccepted())<=0 && professionalPeriodParts[1].compareTo(searchedPatient.getDateTimeAccepted())>=0;}).sorted(Comparator.comparing(Professional::getId)).findFirst();
-        if(searchedProfessional.isEmpty()) throw new EmergencyException();
-        searchedProfessional.get().addPatient(searchedPatient);
-        return searchedProfessional.get().getId();
+        long accepted=ServiceIndex.parseDate(searchedPatient.getDateTimeAccepted());
+        Professional searchedProfessional= accepted==Long.MIN_VALUE ? null : getServiceIndex(specialization).firstInService(accepted);
+        if(searchedProfessional==null) throw new EmergencyException();
+        searchedProfessional.addPatient(searchedPatient);
+        synchronized(searchedPatient){
+            if(searchedPatient.addSpecialization(specialization) && searchedPatient.getStatus()==PatientStatus.DISCHARGED) dischargedCounter(specialization).incrementAndGet();
+        }
+        return searchedProfessional.getId();
+    }
+
+    private ServiceIndex getServiceIndex(String specialization){
+        synchronized(serviceIndexes){
+            return serviceIndexes.computeIfAbsent(specialization, s->new ServiceIndex(professionalMap.values().stream().filter(p->p.getSpecialization().equals(s)).collect(Collectors.toList())));
+        }
     }
 
     public Report saveReport(String professionalId, String fiscalCode, String date, String description) throws EmergencyException {
         if(!professionalMap.containsKey(professionalId)) throw new EmergencyException();
-        String code=String.format("%d",++reportCounter);
+        String code=String.format("%d",reportCounter.incrementAndGet());
         Report newReport= new Report(code, professionalId, fiscalCode, date, description);
         reportsMap.put(code, newReport);
         return newReport;
@@ -215,6 +372,9 @@ public class EmergencyApp {
 
     /**
      * Either discharges a patient or hospitalizes them depending on the availability of space in the requested department.
+     * A patient already hospitalized keeps their bed and is not changed. The bed is reserved
+     * and the status changed and notified under the lock of the patient, so concurrent calls
+     * for the same patient take at most one bed and their events are delivered in order.
      * 
      * @param fiscalCode The fiscal code of the patient to be discharged or hospitalized.
      * @param departmentName The name of the department to which the patient might be admitted.
@@ -225,11 +385,59 @@ public class EmergencyApp {
         Department searchedDepartment= departmentsMap.get(departmentName);
         if(searchedPatient==null) throw new EmergencyException();
         if(searchedDepartment==null) throw new EmergencyException();
-        if(searchedDepartment.isAvailable()){
-            searchedPatient.setStatus(PatientStatus.HOSPITALIZED);
-            searchedDepartment.addPatient(searchedPatient);
+        synchronized(searchedPatient){
+            if(searchedPatient.getStatus()==PatientStatus.HOSPITALIZED) return;
+            PatientEvent event=changeStatus(searchedPatient, searchedDepartment.tryAdmit(searchedPatient) ? PatientStatus.HOSPITALIZED : PatientStatus.DISCHARGED);
+            if(event!=null) notifyStatus(event);
         }
-        searchedPatient.setStatus(PatientStatus.DISCHARGED);
+    }
+
+    /**
+     * Changes the status of a patient updating the counters,
+     * must be called holding the lock of the patient.
+     *
+     * @return the event to notify to the status listeners, {@code null} if the status is unchanged
+     */
+    private PatientEvent changeStatus(Patient patient, PatientStatus status){
+        PatientStatus previous=patient.getStatus();
+        if(previous==status) return null;
+        patient.setStatus(status);
+        statusCounters.get(previous).decrementAndGet();
+        statusCounters.get(status).incrementAndGet();
+        if(previous==PatientStatus.DISCHARGED) for(String specialization: patient.getSpecializations()) dischargedCounter(specialization).decrementAndGet();
+        if(status==PatientStatus.DISCHARGED) for(String specialization: patient.getSpecializations()) dischargedCounter(specialization).incrementAndGet();
+        return new PatientEvent(patient.getFiscalCode(), previous, status);
+    }
+
+    private AtomicInteger dischargedCounter(String specialization){
+        return dischargedBySpecialization.computeIfAbsent(specialization, s->new AtomicInteger());
+    }
+
+    private void notifyStatus(PatientEvent event){
+        for(Consumer<PatientEvent> listener: statusListeners) listener.accept(event);
+    }
+
+    /**
+     * Registers a listener notified of every change of status of the patients:
+     * admission, hospitalization and discharge.
+     * <p>
+     * Listeners are called by the thread performing the change, holding the lock
+     * of the patient, so the events of each patient are delivered in order;
+     * they should return quickly and must not change the status of patients.
+     *
+     * @param listener the listener
+     */
+    public void addStatusListener(Consumer<PatientEvent> listener) {
+        statusListeners.add(listener);
+    }
+
+    /**
+     * Removes a status listener.
+     *
+     * @param listener the listener
+     */
+    public void removeStatusListener(Consumer<PatientEvent> listener) {
+        statusListeners.remove(listener);
     }
 
     /**
@@ -242,8 +450,9 @@ public class EmergencyApp {
     public int verifyPatient(String fiscalCode) throws EmergencyException{
         Patient searchedPatient=patientsMap.get(fiscalCode);
         if(searchedPatient==null) throw new EmergencyException();
-        if(searchedPatient.getStatus()==PatientStatus.DISCHARGED) return 0;
-        if(searchedPatient.getStatus()==PatientStatus.HOSPITALIZED) return 1;
+        PatientStatus status=searchedPatient.getStatus();
+        if(status==PatientStatus.DISCHARGED) return 0;
+        if(status==PatientStatus.HOSPITALIZED) return 1;
         return -1;
     }
 
@@ -253,7 +462,7 @@ public class EmergencyApp {
      * @return The total number of patients in the system.
      */    
     public int getNumberOfPatients() {
-        return (int) patientsMap.values().stream().filter(p->p.getStatus()==PatientStatus.ADMITTED).count();
+        return statusCounters.get(PatientStatus.ADMITTED).get();
     }
 
     /**
@@ -263,12 +472,12 @@ public class EmergencyApp {
      * @return The count of patients admitted on that date.
      */
     public int getNumberOfPatientsByDate(String date) {
-        return (int) patientsMap.values().stream().filter(p->p.getDateTimeAccepted().compareTo(date)==0).count();
+        return patientsByDate.getOrDefault(date, Collections.emptySortedSet()).size();
     }
 
     public int getNumberOfPatientsHospitalizedByDepartment(String departmentName) throws EmergencyException {
         if(!departmentsMap.containsKey(departmentName)) throw new EmergencyException();
-        return (int) departmentsMap.get(departmentName).getPatients().stream().count();
+        return departmentsMap.get(departmentName).getPatients().size();
     }
 
     /**
@@ -277,7 +486,7 @@ public class EmergencyApp {
      * @return The count of discharged patients.
      */
     public int getNumberOfPatientsDischarged() {
-        return (int) patientsMap.values().stream().filter(p->p.getStatus()==PatientStatus.DISCHARGED).count();
+        return statusCounters.get(PatientStatus.DISCHARGED).get();
     }
 
     /**
@@ -287,6 +496,7 @@ public class EmergencyApp {
      * @return The count of discharged patients treated by professionals of the given specialization.
      */
     public int getNumberOfPatientsAssignedToProfessionalDischarged(String specialization) {
-        return (int) professionalMap.values().stream().filter(p->p.getSpecialization().equals(specialization)).flatMap(p->p.getPatients().stream()).filter(p->p.getStatus()==PatientStatus.DISCHARGED).distinct().count();
+        AtomicInteger discharged=dischargedBySpecialization.get(specialization);
+        return discharged==null ? 0 : discharged.get();
     }
 }
@@ -0,0 +1,37 @@
+package emergency;
+
+import java.util.*;
+
+/**
+ * Outcome of a bulk import: the number of records imported and the
+ * lines that were rejected, with the reason.
+ */
+public class ImportReport {
+    private final int imported;
+    private final SortedMap<Integer,String> errors;
+
+    public ImportReport(int imported, SortedMap<Integer,String> errors) {
+        this.imported = imported;
+        this.errors = Collections.unmodifiableSortedMap(errors);
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    /**
+     * @return the reason of rejection of each bad line, by line number starting from 1 (the header)
+     */
+    public SortedMap<Integer,String> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return imported+" imported, "+errors.size()+" rejected";
+    }
+}
@@ -1,5 +1,7 @@
 package emergency;
 
+import java.util.*;
+
 import emergency.EmergencyApp.*;
 
 public class Patient {
@@ -9,7 +11,8 @@ public class Patient {
     private final String dateofbirth;
     private final String reason;
     private String datetimeaccepted;
-    private PatientStatus status;
+    private volatile PatientStatus status;
+    private Set<String> specializations = new HashSet<>();
     
     public Patient(String fiscalcode, String name, String surname, String dateofbirth, String reason,
             String datetimeaccepted) {
@@ -53,4 +56,17 @@ public class Patient {
     public void setStatus(PatientStatus status){
         this.status=status;
     }
+
+    /**
+     * Records the specialization of a professional the patient was assigned to
+     *
+     * @return {@code true} if the specialization was not recorded yet
+     */
+    public boolean addSpecialization(String specialization){
+        return specializations.add(specialization);
+    }
+
+    public Collection<String> getSpecializations(){
+        return specializations;
+    }
 }
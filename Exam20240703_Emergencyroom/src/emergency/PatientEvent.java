@@ -0,0 +1,39 @@
+package emergency;
+
+import emergency.EmergencyApp.*;
+
+/**
+ * Change of status of a patient, notified to the status listeners
+ * registered with {@link EmergencyApp#addStatusListener}.
+ */
+public class PatientEvent {
+    private final String fiscalcode;
+    private final PatientStatus previous;
+    private final PatientStatus status;
+
+    public PatientEvent(String fiscalcode, PatientStatus previous, PatientStatus status) {
+        this.fiscalcode = fiscalcode;
+        this.previous = previous;
+        this.status = status;
+    }
+
+    public String getFiscalCode() {
+        return fiscalcode;
+    }
+
+    /**
+     * @return the status before the change, {@code null} for a newly admitted patient
+     */
+    public PatientStatus getPrevious() {
+        return previous;
+    }
+
+    public PatientStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return fiscalcode+": "+previous+" -> "+status;
+    }
+}
@@ -1,6 +1,7 @@
 package emergency;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Professional {
     private final String id;
@@ -8,7 +9,7 @@ public class Professional {
     private final String surname;
     private String period;
     private String specialization;
-    private Set<Patient> patients = new HashSet<>();
+    private Set<Patient> patients = ConcurrentHashMap.newKeySet();
     public Professional(String id, String name, String surname, String period, String specialization) {
         this.id = id;
         this.name = name;
@@ -0,0 +1,146 @@
+package emergency;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Index of the service periods of the professionals of one specialization.
+ * <p>
+ * Periods are parsed once, when the index is built. Professionals are kept
+ * sorted by period start with a tree of the maximum period end, to find the
+ * ones whose period contains a given period. The timeline is also split at the
+ * period endpoints into elementary segments, each one holding the professional
+ * with the lowest id in service, to find the first available professional on a
+ * given day with a binary search.
+ */
+class ServiceIndex {
+    private final Professional[] byStart;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnd;
+    private final long[] bounds;
+    private final Professional[] first;
+
+    ServiceIndex(Collection<Professional> professionals) {
+        List<Professional> valid= new ArrayList<>();
+        List<long[]> periods= new ArrayList<>();
+        for(Professional p: professionals){
+            long[] period=parsePeriod(p.getPeriod());
+            if(period!=null && period[0]<=period[1]){
+                valid.add(p);
+                periods.add(period);
+            }
+        }
+        Integer[] order=new Integer[valid.size()];
+        for(int i=0;i<order.length;i++) order[i]=i;
+        Arrays.sort(order, Comparator.comparingLong(i->periods.get(i)[0]));
+        byStart=new Professional[order.length];
+        starts=new long[order.length];
+        ends=new long[order.length];
+        for(int i=0;i<order.length;i++){
+            byStart[i]=valid.get(order[i]);
+            starts[i]=periods.get(order[i])[0];
+            ends[i]=periods.get(order[i])[1];
+        }
+        maxEnd=new long[4*Math.max(1, order.length)];
+        if(order.length>0) buildTree(1, 0, order.length-1);
+
+        TreeSet<Long> points= new TreeSet<>();
+        for(int i=0;i<starts.length;i++){
+            points.add(starts[i]);
+            points.add(ends[i]+1);
+        }
+        bounds=points.stream().mapToLong(Long::longValue).toArray();
+        first=new Professional[bounds.length];
+        Integer[] byEnd=new Integer[starts.length];
+        for(int i=0;i<byEnd.length;i++) byEnd[i]=i;
+        Arrays.sort(byEnd, Comparator.comparingLong(i->ends[i]));
+        TreeSet<Professional> active= new TreeSet<>(Comparator.comparing(Professional::getId));
+        int nextStart=0, nextEnd=0;
+        for(int j=0;j<bounds.length;j++){
+            while(nextEnd<byEnd.length && ends[byEnd[nextEnd]]+1==bounds[j]) active.remove(byStart[byEnd[nextEnd++]]);
+            while(nextStart<starts.length && starts[nextStart]==bounds[j]) active.add(byStart[nextStart++]);
+            first[j]=active.isEmpty() ? null : active.first();
+        }
+    }
+
+    private void buildTree(int node, int lo, int hi){
+        if(lo==hi){
+            maxEnd[node]=ends[lo];
+            return;
+        }
+        int mid=(lo+hi)/2;
+        buildTree(2*node, lo, mid);
+        buildTree(2*node+1, mid+1, hi);
+        maxEnd[node]=Math.max(maxEnd[2*node], maxEnd[2*node+1]);
+    }
+
+    static long parseDate(String date){
+        try{
+            return LocalDate.parse(date.length()>10 ? date.substring(0, 10) : date).toEpochDay();
+        }catch(DateTimeParseException e){
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @param period a period formatted as "YYYY-MM-DD to YYYY-MM-DD"
+     * @return start and end epoch days, {@code null} if the period is not valid
+     */
+    static long[] parsePeriod(String period){
+        if(period==null) return null;
+        int separator=period.indexOf(" to ");
+        if(separator<0) return null;
+        long start=parseDate(period.substring(0, separator).trim());
+        long end=parseDate(period.substring(separator+4).trim());
+        if(start==Long.MIN_VALUE || end==Long.MIN_VALUE) return null;
+        return new long[]{start, end};
+    }
+
+    /**
+     * Finds the professionals whose service period contains the given one
+     *
+     * @param start first day of the period
+     * @param end last day of the period
+     * @return the professionals, in order of period start
+     */
+    List<Professional> inService(long start, long end){
+        List<Professional> found= new ArrayList<>();
+        int count=upperBound(starts, start);
+        if(count>0) collect(1, 0, starts.length-1, count-1, end, found);
+        return found;
+    }
+
+    private void collect(int node, int lo, int hi, int last, long end, List<Professional> found){
+        if(lo>last || maxEnd[node]<end) return;
+        if(lo==hi){
+            found.add(byStart[lo]);
+            return;
+        }
+        int mid=(lo+hi)/2;
+        collect(2*node, lo, mid, last, end, found);
+        collect(2*node+1, mid+1, hi, last, end, found);
+    }
+
+    /**
+     * Finds the professional with the lowest id in service on the given day
+     *
+     * @param day the day
+     * @return the professional, {@code null} if none is in service
+     */
+    Professional firstInService(long day){
+        int segment=upperBound(bounds, day)-1;
+        return segment<0 ? null : first[segment];
+    }
+
+    private static int upperBound(long[] values, long key){
+        int lo=0, hi=values.length;
+        while(lo<hi){
+            int mid=(lo+hi)>>>1;
+            if(values[mid]<=key) lo=mid+1;
+            else hi=mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,164 @@
+package test.additional;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import emergency.*;
+
+public class TestBulkImport {
+
+    private EmergencyApp app;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+    }
+
+    private static String professionals(int count) {
+        StringBuilder sb = new StringBuilder("id,name,surname,specialization,period,hours\n");
+        for(int i=0; i<count; ++i) {
+            if(i%1000==7) sb.append("P").append(i).append(",Bad\n");
+            else if(i%1000==9) sb.append("P").append(i).append(",Name,Surname,Cardiology,2024-13-01 to 2024-12-31,08-16\n");
+            else sb.append("P").append(i).append(",Name").append(i).append(",Surname,").append(i%2==0 ? "Cardiology" : "Surgery").append(",2024-01-01 to 2024-12-31,08-16\n");
+        }
+        return sb.toString();
+    }
+
+    private static void checkProfessionals(EmergencyApp app, ImportReport report, int count) throws EmergencyException {
+        int bad = 2*(count/1000);
+        assertEquals(count-bad, report.getImported());
+        SortedMap<Integer,String> errors = report.getErrors();
+        assertEquals(bad, errors.size());
+        // line 1 is the header, professional i is on line i+2
+        assertTrue(errors.containsKey(7+2));
+        assertTrue(errors.containsKey(1009+2));
+        assertTrue(errors.get(9+2).contains("period"));
+        assertEquals("Name0", app.getProfessionalById("P0").getName());
+        assertEquals("Surgery", app.getProfessionalById("P1").getSpecialization());
+        assertEquals("Rejected lines are all Surgery", count/2, app.getProfessionals("Cardiology").size());
+        assertEquals(count-bad, app.getProfessionals("Cardiology").size()+app.getProfessionals("Surgery").size());
+    }
+
+    @Test
+    public void testImportProfessionalsReader() throws Exception {
+        int count = 50_000;
+        ImportReport report = app.importProfessionals(new StringReader(professionals(count)), 4);
+        checkProfessionals(app, report, count);
+        assertThrows(EmergencyException.class, () -> app.getProfessionalById("P7"));
+    }
+
+    @Test
+    public void testImportProfessionalsMapped() throws Exception {
+        int count = 50_000;
+        Path file = Files.createTempFile("professionals", ".csv");
+        try {
+            Files.write(file, professionals(count).getBytes(StandardCharsets.UTF_8));
+            ImportReport report = app.importProfessionals(file, 4);
+            checkProfessionals(app, report, count);
+            assertEquals(report.getErrors(), new EmergencyApp().importProfessionals(new StringReader(professionals(count)), 1).getErrors());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testImportDepartments() throws Exception {
+        String csv = "name,max\r\nCardiology,10\r\nSurgery,x\r\n,3\r\nNeurology\r\nOncology,-1\r\nPediatrics,5\r\n";
+        ImportReport report = app.importDepartments(new StringReader(csv), 2);
+        assertEquals(2, report.getImported());
+        assertEquals(4, report.getErrors().size());
+        assertEquals("[3, 4, 5, 6]", report.getErrors().keySet().toString());
+        assertEquals(2, app.getDepartments().size());
+
+        Path file = Files.createTempFile("departments", ".csv");
+        try {
+            Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+            EmergencyApp mapped = new EmergencyApp();
+            ImportReport mappedReport = mapped.importDepartments(file, 2);
+            assertEquals(report.getErrors(), mappedReport.getErrors());
+            assertTrue(mapped.getDepartments().contains("Pediatrics"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testImportMatchesSequential() throws Exception {
+        String csv = "id,name,surname,specialization,period,hours\n"
+                + "1,John,Doe,Cardiology,2024-01-01 to 2024-12-31,08-16\n"
+                + "2,Mik,Smith,Surgery,2024-05-01 to 2024-05-28,08-16\n"
+                + "1,Jane,Doe,Surgery,2024-05-01 to 2024-06-30,08-16\n";
+        EmergencyApp sequential = new EmergencyApp();
+        assertEquals(3, sequential.readFromFileProfessionals(new StringReader(csv)));
+        assertEquals("Repeated ids should be counted once", 2, app.importProfessionals(new StringReader(csv), 2).getImported());
+        assertEquals(sequential.getProfessionalById("1").getName(), app.getProfessionalById("1").getName());
+        assertEquals(sequential.getProfessionals("Surgery"), app.getProfessionals("Surgery"));
+        assertEquals(sequential.getProfessionalsInService("Surgery", "2024-05-02 to 2024-05-20"),
+                app.getProfessionalsInService("Surgery", "2024-05-02 to 2024-05-20"));
+    }
+
+    @Test
+    public void testReimportKeepsDepartments() throws Exception {
+        app.addDepartment("Cardiology", 1);
+        app.addPatient("P1", "Name", "Surname", "1990-01-01", "Checkup", "2024-06-20");
+        app.dischargeOrHospitalize("P1", "Cardiology");
+        String csv = "name,max\nCardiology,10\nSurgery,3\nSurgery,4\n";
+        ImportReport report = app.importDepartments(new StringReader(csv), 2);
+        assertEquals(1, report.getImported());
+        assertEquals(1, app.getNumberOfPatientsHospitalizedByDepartment("Cardiology"));
+        app.addPatient("P2", "Name", "Surname", "1990-01-01", "Checkup", "2024-06-20");
+        app.dischargeOrHospitalize("P2", "Cardiology");
+        assertEquals("Bed occupancy should be kept", 0, app.verifyPatient("P2"));
+        app.addPatient("P3", "Name", "Surname", "1990-01-01", "Checkup", "2024-06-20");
+        app.dischargeOrHospitalize("P3", "Surgery");
+        assertEquals(1, app.getNumberOfPatientsHospitalizedByDepartment("Surgery"));
+    }
+
+    @Test
+    public void testImportPublishedAtOnce() throws Exception {
+        final int count = 50_000;
+        final String csv = professionals(count);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread importer = new Thread(() -> {
+            try {
+                app.importProfessionals(new StringReader(csv), 4);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                done.set(true);
+            }
+        });
+        importer.start();
+        int expected = count - 2*(count/1000);
+        while(!done.get()) {
+            int seen = surgeons(app);
+            assertTrue("Partial import visible: " + seen, seen == 0 || seen == expected - count/2);
+        }
+        importer.join();
+        assertEquals(expected - count/2, surgeons(app));
+    }
+
+    private static int surgeons(EmergencyApp app) {
+        try {
+            return app.getProfessionals("Surgery").size();
+        } catch(EmergencyException e) {
+            return 0;
+        }
+    }
+
+    @Test
+    public void testNullReader() {
+        assertThrows(IOException.class, () -> app.importDepartments((java.io.Reader) null, 1));
+    }
+}
@@ -0,0 +1,111 @@
+package test.additional;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import emergency.*;
+import emergency.EmergencyApp.PatientStatus;
+
+public class TestConcurrentAdmissions {
+
+    private static final int THREADS = 8;
+    private static final int PATIENTS_PER_THREAD = 2000;
+
+    private EmergencyApp app;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        executor = Executors.newFixedThreadPool(THREADS);
+        app.addDepartment("Cardiology", 500);
+        app.addDepartment("Surgery", 1000);
+        app.addProfessional("1", "Toy", "Romi", "Cardiology", "2024-01-01 to 2024-12-31");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testNoDoubleBooking() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        Set<String> reportIds = ConcurrentHashMap.newKeySet();
+        List<Future<?>> tasks = new ArrayList<>();
+        for(int t=0; t<THREADS; ++t) {
+            final int thread = t;
+            tasks.add(executor.submit(() -> {
+                start.await();
+                for(int i=0; i<PATIENTS_PER_THREAD; ++i) {
+                    String code = "P" + thread + "-" + i;
+                    app.addPatient(code, "Name", "Surname" + (i%10), "1990-01-01", "Checkup", "2024-06-20");
+                    app.assignPatientToProfessional(code, "Cardiology");
+                    reportIds.add(app.saveReport("1", code, "2024-06-20", "ok").getId());
+                    app.dischargeOrHospitalize(code, i%2==0 ? "Cardiology" : "Surgery");
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for(Future<?> task : tasks) task.get();
+
+        int total = THREADS*PATIENTS_PER_THREAD;
+        assertEquals("Beds should never be double-booked", 500, app.getNumberOfPatientsHospitalizedByDepartment("Cardiology"));
+        assertEquals("Beds should never be double-booked", 1000, app.getNumberOfPatientsHospitalizedByDepartment("Surgery"));
+        assertEquals(total-1500, app.getNumberOfPatientsDischarged());
+        assertEquals(total-1500, app.getNumberOfPatientsAssignedToProfessionalDischarged("Cardiology"));
+        assertEquals(0, app.getNumberOfPatients());
+        assertEquals("Report codes should be unique", total, reportIds.size());
+        assertEquals(total, app.getNumberOfPatientsByDate("2024-06-20"));
+        assertEquals(total/10, app.getPatient("Surname3").size());
+    }
+
+    @Test
+    public void testConcurrentSamePatient() throws Exception {
+        List<Future<Patient>> tasks = new ArrayList<>();
+        for(int t=0; t<THREADS; ++t) {
+            tasks.add(executor.submit(() -> app.addPatient("X", "Name", "Surname", "1990-01-01", "Checkup", "2024-06-20")));
+        }
+        Patient first = tasks.get(0).get();
+        for(Future<Patient> task : tasks) assertSame("Only one patient should be created", first, task.get());
+        assertEquals(1, app.getNumberOfPatients());
+        assertEquals(1, app.getPatient("Surname").size());
+    }
+
+    @Test
+    public void testConcurrentSamePatientHospitalized() throws Exception {
+        for(int round=0; round<200; ++round) {
+            String code = "H" + round;
+            app.addPatient(code, "Name", "Surname", "1990-01-01", "Checkup", "2024-06-20");
+            app.assignPatientToProfessional(code, "Cardiology");
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> tasks = new ArrayList<>();
+            for(int t=0; t<THREADS; ++t) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    app.dischargeOrHospitalize(code, "Cardiology");
+                    return null;
+                }));
+            }
+            start.countDown();
+            for(Future<?> task : tasks) task.get();
+            assertEquals("The patient should take one bed", round+1, app.getNumberOfPatientsHospitalizedByDepartment("Cardiology"));
+            assertEquals(PatientStatus.HOSPITALIZED, app.getPatient(code).get(0).getStatus());
+        }
+        assertEquals(0, app.getNumberOfPatientsDischarged());
+        assertEquals(0, app.getNumberOfPatients());
+    }
+}
@@ -0,0 +1,67 @@
+package test.additional;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import emergency.*;
+
+public class TestPatientIndexes {
+
+    private static final String[] SURNAMES = {"Rossi", "Bianchi", "Verdi", "R1", "R2"};
+    private static final String[] NAMES = {"Anna", "Luca", "Marco"};
+    private static final String[] DATES = {"2024-06-20", "2024-06-21", "2024-06-22"};
+
+    private EmergencyApp app;
+    private List<Patient> added;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        added = new ArrayList<>();
+        Random random = new Random(42);
+        for(int i=0; i<2000; ++i) {
+            // some fiscal codes equal the surnames, of the patient itself or of others
+            String code = random.nextInt(20)==0 ? "R" + random.nextInt(4) : "P" + random.nextInt(1500);
+            Patient patient = app.addPatient(code, NAMES[random.nextInt(NAMES.length)], SURNAMES[random.nextInt(SURNAMES.length)],
+                    "1990-01-01", "Checkup", DATES[random.nextInt(DATES.length)]);
+            if(!added.contains(patient)) added.add(patient);
+        }
+    }
+
+    @Test
+    public void testGetPatientNoDuplicates() throws EmergencyException {
+        List<String> identifiers = new ArrayList<>(List.of(SURNAMES));
+        identifiers.addAll(List.of("R0", "R3", "P7", "Nobody"));
+        for(String identifier : identifiers) {
+            List<Patient> found = app.getPatient(identifier);
+            assertEquals("Duplicates for " + identifier, found.size(), new HashSet<>(found).size());
+            List<Patient> expected = added.stream()
+                    .filter(p -> p.getFiscalCode().equals(identifier) || p.getSurname().equals(identifier))
+                    .collect(Collectors.toList());
+            assertEquals("Wrong patients for " + identifier, new HashSet<>(expected), new HashSet<>(found));
+        }
+    }
+
+    @Test
+    public void testPatientsByDate() {
+        Comparator<Patient> byName = Comparator.comparing(Patient::getSurname).thenComparing(Patient::getName).thenComparing(Patient::getFiscalCode);
+        for(String date : DATES) {
+            List<String> expected = added.stream().filter(p -> p.getDateTimeAccepted().equals(date))
+                    .sorted(byName).map(Patient::getFiscalCode).collect(Collectors.toList());
+            assertEquals("Wrong order for " + date, expected, app.getPatientsByDate(date));
+            assertEquals("Wrong count for " + date, expected.size(), app.getNumberOfPatientsByDate(date));
+        }
+        assertTrue(app.getPatientsByDate("2024-01-01").isEmpty());
+        assertEquals(0, app.getNumberOfPatientsByDate("2024-01-01"));
+        assertEquals(added.size(), app.getNumberOfPatients());
+    }
+}
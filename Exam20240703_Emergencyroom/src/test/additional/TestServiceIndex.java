@@ -0,0 +1,165 @@
+package test.additional;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import emergency.*;
+
+public class TestServiceIndex {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+    private static final int DAYS = 40;
+    private static final String[] SPECIALIZATIONS = {"Cardiology", "Surgery"};
+
+    private EmergencyApp app;
+    private Random random;
+    private Map<String, String[]> professionals;
+    private int patients;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        random = new Random(7);
+        professionals = new LinkedHashMap<>();
+        patients = 0;
+    }
+
+    private String date(int day) {
+        return BASE.plusDays(day).toString();
+    }
+
+    private String randomPeriod() {
+        switch(random.nextInt(12)) {
+            case 0: return "not a period";
+            case 1: return date(3) + " to 2024-13-01";
+            case 2: return date(3) + " - " + date(9);
+            case 3: {
+                int day = random.nextInt(DAYS);
+                return date(day) + " to " + date(day);
+            }
+            case 4: {
+                int start = 5 + random.nextInt(DAYS-5);
+                return date(start) + " to " + date(start - 1 - random.nextInt(5));
+            }
+            default: {
+                // few distinct endpoints, so that periods share and touch them
+                int start = 5 * random.nextInt(DAYS/5);
+                int end = start + 5 * random.nextInt(4) + random.nextInt(2) - 1;
+                return date(start) + " to " + date(Math.max(start, end));
+            }
+        }
+    }
+
+    private void addRandomProfessionals(int count, int ids) {
+        for(int i=0; i<count; ++i) {
+            String id = "D" + random.nextInt(ids);
+            String specialization = SPECIALIZATIONS[random.nextInt(SPECIALIZATIONS.length)];
+            String period = randomPeriod();
+            app.addProfessional(id, "Name", "Surname", specialization, period);
+            professionals.put(id, new String[]{specialization, period});
+        }
+    }
+
+    /**
+     * @return start and end of the period, {@code null} if it cannot be parsed
+     */
+    private static LocalDate[] parse(String period) {
+        String[] parts = period.split(" to ");
+        if(parts.length != 2) return null;
+        try {
+            return new LocalDate[]{LocalDate.parse(parts[0]), LocalDate.parse(parts[1])};
+        } catch(DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private List<String> scanInService(String specialization, LocalDate start, LocalDate end) {
+        List<String> found = new ArrayList<>();
+        for(Map.Entry<String, String[]> p : professionals.entrySet()) {
+            if(!p.getValue()[0].equals(specialization)) continue;
+            LocalDate[] period = parse(p.getValue()[1]);
+            if(period != null && !period[0].isAfter(start) && !period[1].isBefore(end)) found.add(p.getKey());
+        }
+        return found;
+    }
+
+    private String scanFirstInService(String specialization, LocalDate day) {
+        String first = null;
+        for(String id : scanInService(specialization, day, day)) if(first == null || id.compareTo(first) < 0) first = id;
+        return first;
+    }
+
+    private void checkAgainstScan() throws EmergencyException {
+        for(String specialization : SPECIALIZATIONS) {
+            for(int from=-2; from<DAYS+5; ++from) {
+                for(int to=from; to<DAYS+5; to+=1+random.nextInt(3)) {
+                    List<String> expected = scanInService(specialization, BASE.plusDays(from), BASE.plusDays(to));
+                    List<String> found;
+                    try {
+                        found = app.getProfessionalsInService(specialization, date(from) + " to " + date(to));
+                    } catch(EmergencyException e) {
+                        found = List.of();
+                    }
+                    assertEquals("Wrong professionals from " + date(from) + " to " + date(to), new HashSet<>(expected), new HashSet<>(found));
+                    assertEquals("Duplicate professionals", found.size(), new HashSet<>(found).size());
+                    for(int i=1; i<found.size(); ++i) {
+                        assertFalse("Not in order of period start",
+                                parse(professionals.get(found.get(i-1))[1])[0].isAfter(parse(professionals.get(found.get(i))[1])[0]));
+                    }
+                }
+                String code = "P" + (patients++);
+                app.addPatient(code, "Name", "Surname", "1990-01-01", "Checkup", date(from));
+                String expected = scanFirstInService(specialization, BASE.plusDays(from));
+                String found;
+                try {
+                    found = app.assignPatientToProfessional(code, specialization);
+                } catch(EmergencyException e) {
+                    found = null;
+                }
+                assertEquals("Wrong first professional on " + date(from), expected, found);
+            }
+        }
+    }
+
+    @Test
+    public void testRandomAgainstScan() throws EmergencyException {
+        for(int round=0; round<5; ++round) {
+            addRandomProfessionals(30, 1000);
+            checkAgainstScan();
+        }
+    }
+
+    @Test
+    public void testInvalidatedByAddProfessional() throws EmergencyException {
+        addRandomProfessionals(40, 60);
+        checkAgainstScan();
+        // replaces periods and specializations of existing ids
+        for(int round=0; round<20; ++round) {
+            addRandomProfessionals(3, 60);
+            checkAgainstScan();
+        }
+    }
+
+    @Test
+    public void testSharedAndAdjacentEndpoints() throws EmergencyException {
+        professionals.put("B", new String[]{"Cardiology", date(10) + " to " + date(20)});
+        professionals.put("A", new String[]{"Cardiology", date(20) + " to " + date(30)});
+        professionals.put("C", new String[]{"Cardiology", date(21) + " to " + date(21)});
+        professionals.put("D", new String[]{"Cardiology", date(10) + " to " + date(10)});
+        for(Map.Entry<String, String[]> p : professionals.entrySet()) app.addProfessional(p.getKey(), "Name", "Surname", p.getValue()[0], p.getValue()[1]);
+        checkAgainstScan();
+        assertEquals(List.of("B", "A"), app.getProfessionalsInService("Cardiology", date(20) + " to " + date(20)));
+        assertEquals(List.of("A", "C"), app.getProfessionalsInService("Cardiology", date(21) + " to " + date(21)));
+    }
+}
@@ -0,0 +1,130 @@
+package test.additional;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import emergency.*;
+import emergency.EmergencyApp.*;
+
+public class TestStatusEvents {
+
+    private EmergencyApp app;
+    private List<PatientEvent> events;
+
+    @Before
+    public void setUp() {
+        app = new EmergencyApp();
+        events = new CopyOnWriteArrayList<>();
+        app.addStatusListener(events::add);
+        app.addDepartment("Cardiology", 1);
+        app.addProfessional("1", "Toy", "Romi", "Cardiology", "2024-06-01 to 2024-06-30");
+    }
+
+    @Test
+    public void testEvents() throws EmergencyException {
+        app.addPatient("1234567890", "Alice", "Wonderland", "1990-01-01", "Checkup", "2024-06-20");
+        app.addPatient("0987654321", "Bob", "Wonderland", "1992-02-02", "Emergency", "2024-06-20");
+        app.assignPatientToProfessional("0987654321", "Cardiology");
+        app.dischargeOrHospitalize("1234567890", "Cardiology");
+        app.dischargeOrHospitalize("0987654321", "Cardiology");
+
+        assertEquals(4, events.size());
+        assertEquals(PatientStatus.ADMITTED, events.get(0).getStatus());
+        assertNull(events.get(0).getPrevious());
+        assertEquals(PatientStatus.HOSPITALIZED, events.get(2).getStatus());
+        assertEquals("0987654321", events.get(3).getFiscalCode());
+        assertEquals(PatientStatus.ADMITTED, events.get(3).getPrevious());
+        assertEquals(PatientStatus.DISCHARGED, events.get(3).getStatus());
+
+        assertEquals(0, app.getNumberOfPatients());
+        assertEquals(1, app.getNumberOfPatientsDischarged());
+        assertEquals(1, app.getNumberOfPatientsAssignedToProfessionalDischarged("Cardiology"));
+        assertEquals(0, app.getNumberOfPatientsAssignedToProfessionalDischarged("Surgery"));
+    }
+
+    @Test
+    public void testConcurrentDischarges() throws Exception {
+        final int n = 2000;
+        app.addDepartment("Full", 0);
+        for(int i=0; i<n; ++i) app.addPatient("P"+i, "Name", "Surname", "1990-01-01", "Checkup", "2024-06-20");
+        ConcurrentLinkedQueue<PatientEvent> discharges = new ConcurrentLinkedQueue<>();
+        app.addStatusListener(discharges::add);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+        for(int t=0; t<8; ++t) {
+            tasks.add(executor.submit(() -> {
+                for(int i=0; i<n; ++i) app.dischargeOrHospitalize("P"+i, "Full");
+                return null;
+            }));
+        }
+        for(Future<?> task : tasks) task.get();
+        executor.shutdown();
+
+        assertEquals(0, app.getNumberOfPatients());
+        assertEquals(n, app.getNumberOfPatientsDischarged());
+        assertEquals("Each patient should be discharged once", n, discharges.size());
+    }
+
+    @Test
+    public void testEventsInOrderPerPatient() throws Exception {
+        final int n = 2000;
+        final int threads = 8;
+        app.addDepartment("Ward", n/2);
+        app.addDepartment("Full", 0);
+        Map<String,List<PatientEvent>> byPatient = new ConcurrentHashMap<>();
+        AtomicInteger minAdmitted = new AtomicInteger();
+        app.addStatusListener(e -> {
+            byPatient.computeIfAbsent(e.getFiscalCode(), k -> new ArrayList<>()).add(e);
+            minAdmitted.accumulateAndGet(app.getNumberOfPatients(), Math::min);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> tasks = new ArrayList<>();
+        for(int t=0; t<threads; ++t) {
+            final int thread = t;
+            tasks.add(executor.submit(() -> {
+                for(int i=0; i<n; ++i) {
+                    // one thread admits the patient while the others discharge or hospitalize it
+                    if(i%threads==thread) {
+                        app.addPatient("P"+i, "Name", "Surname", "1990-01-01", "Checkup", "2024-06-20");
+                    } else {
+                        try {
+                            app.dischargeOrHospitalize("P"+i, thread%2==0 ? "Full" : "Ward");
+                        } catch(EmergencyException e) {
+                            // not admitted yet
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for(Future<?> task : tasks) task.get();
+        executor.shutdown();
+
+        assertEquals(n, byPatient.size());
+        for(List<PatientEvent> patientEvents : byPatient.values()) {
+            PatientStatus status = null;
+            for(PatientEvent e : patientEvents) {
+                assertEquals("Events of " + e.getFiscalCode() + " out of order", status, e.getPrevious());
+                status = e.getStatus();
+            }
+        }
+        assertTrue("Admitted patients should never be negative", minAdmitted.get() >= 0);
+        assertEquals(n, app.getNumberOfPatients() + app.getNumberOfPatientsDischarged()
+                        + app.getNumberOfPatientsHospitalizedByDepartment("Ward"));
+    }
+}
@@ -0,0 +1,58 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import emergency.EmergencyApp;
+
+/**
+ * Measures the throughput of parallel admissions: each admission adds a patient,
+ * assigns a professional, saves a report and hospitalizes or discharges the patient.
+ * <p>
+ * Usage: {@code AdmissionBenchmark [admissions] [max threads]},
+ * default 400 000 admissions and as many threads as available processors.
+ */
+public class AdmissionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int admissions = args.length>0 ? Integer.parseInt(args[0]) : 400_000;
+        int maxThreads = args.length>1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        run(admissions, 1); // warm-up
+        for(int threads=1; threads<=maxThreads; threads*=2) {
+            double secs = run(admissions, threads);
+            System.out.printf("%2d threads  %6.2f s  %,10.0f admissions/s%n", threads, secs, admissions/secs);
+        }
+    }
+
+    private static double run(int admissions, int threads) throws Exception {
+        EmergencyApp app = new EmergencyApp();
+        for(int d=0; d<10; ++d) app.addDepartment("Dept" + d, admissions/20);
+        for(int p=0; p<50; ++p) app.addProfessional("" + p, "Name", "Surname", "Dept" + p%10, "2024-01-01 to 2024-12-31");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> tasks = new ArrayList<>();
+        for(int t=0; t<threads; ++t) {
+            final int thread = t;
+            tasks.add(executor.submit(() -> {
+                for(int i=thread; i<admissions; i+=threads) {
+                    String code = "P" + i;
+                    String dept = "Dept" + i%10;
+                    app.addPatient(code, "Name", "Surname" + i%1000, "1990-01-01", "Checkup", "2024-06-" + (10+i%20));
+                    String professional = app.assignPatientToProfessional(code, dept);
+                    app.saveReport(professional, code, "2024-06-20", "Checkup");
+                    app.dischargeOrHospitalize(code, dept);
+                }
+                return null;
+            }));
+        }
+        for(Future<?> task : tasks) task.get();
+        double secs = (System.nanoTime()-start)/1e9;
+        executor.shutdown();
+        return secs;
+    }
+}
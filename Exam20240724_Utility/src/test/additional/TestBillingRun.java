@@ -0,0 +1,82 @@
+package test.additional;
+
+import utility.Utility;
+import utility.UtilityException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestBillingRun {
+    private static final int CONTRACTS = 3000;
+    private Utility com;
+    private List<String> contracts;
+
+    @Before
+    public void setUp() throws UtilityException {
+        com = new Utility();
+        String user = com.addUser("DRGMRA47P03H501B", "Mario", "Draghi", "Via Roma 1, Roma", "mario.draghi@eu.eu");
+        contracts = new ArrayList<>();
+        Random rnd = new Random(11);
+        LocalDate start = LocalDate.of(2023, 12, 1);
+        for(int c=0; c<CONTRACTS; ++c) {
+            String pdp = com.defineServicePoint("Torino", "Via " + c, 45.06, 7.66);
+            String meter = com.addMeter("SN" + c, "brand", "model", "m^3");
+            com.installMeter(pdp, meter);
+            String contract = com.signContract(user, pdp);
+            contracts.add(contract);
+            // a few contracts without enough readings
+            int readings = c%500==0 ? 1 : 5 + rnd.nextInt(40);
+            double value = 0;
+            for(int r=0; r<readings; ++r) {
+                value += rnd.nextInt(100);
+                com.addReading(contract, meter, start.plusDays(r*3 + rnd.nextInt(3)).toString(), value);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesBreakdown() throws IOException, UtilityException {
+        StringWriter out = new StringWriter();
+        int billed = com.writeBillBreakdowns(1, 6, 2024, out, 4);
+        assertEquals(CONTRACTS - CONTRACTS/500, billed);
+
+        List<String> expected = new ArrayList<>();
+        for(String contract : contracts) {
+            try {
+                for(String line : com.getBillBreakdown(contract, 1, 6, 2024)) expected.add(contract + " " + line);
+            } catch(UtilityException e) {
+                expected.add(contract + ": estimate not available");
+            }
+        }
+        assertEquals(expected, List.of(out.toString().split("\n")));
+    }
+
+    @Test
+    public void testSingleThread() throws IOException {
+        StringWriter parallel = new StringWriter();
+        StringWriter sequential = new StringWriter();
+        com.writeBillBreakdowns(2, 3, 2024, parallel, 3);
+        com.writeBillBreakdowns(2, 3, 2024, sequential, 1);
+        assertEquals(sequential.toString(), parallel.toString());
+        assertTrue(parallel.toString().startsWith("C1: estimate not available\nC2 2024-02-01..2024-03-01: "));
+    }
+
+    @Test
+    public void testNoMonths() throws IOException, UtilityException {
+        // the contract without enough readings has no month to estimate
+        assertEquals(List.of(), com.getBillBreakdown(contracts.get(0), 4, 3, 2024));
+        assertEquals(List.of(), com.getBillBreakdown(contracts.get(1), 4, 3, 2024));
+
+        StringWriter out = new StringWriter();
+        assertEquals(CONTRACTS, com.writeBillBreakdowns(4, 3, 2024, out, 4));
+        assertEquals("", out.toString());
+    }
+}
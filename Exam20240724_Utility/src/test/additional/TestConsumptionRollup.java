@@ -0,0 +1,132 @@
+package test.additional;
+
+import utility.Reading;
+import utility.Utility;
+import utility.UtilityException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class TestConsumptionRollup {
+    private Utility com;
+    private final List<String> contracts = new ArrayList<>();
+    private final List<String> meters = new ArrayList<>();
+    private static final String[] MUNICIPALITIES = {"Torino", "Moncalieri", "Milano"};
+    private static final int YEAR = 2024;
+
+    @Before
+    public void setUp() throws UtilityException {
+        com = new Utility();
+        String user = com.addUser("DRGMRA47P03H501B", "Mario", "Draghi", "Via Roma 1, Roma", "mario.draghi@eu.eu");
+        for(int i=0; i<12; ++i) {
+            String pdp = com.defineServicePoint(MUNICIPALITIES[i%3], "Via " + i, 45.06, 7.66);
+            String meter = com.addMeter("SN" + i, "brand", "model", "m^3");
+            com.installMeter(pdp, meter);
+            meters.add(meter);
+            contracts.add(com.signContract(user, pdp));
+        }
+    }
+
+    /**
+     * Consumption of the municipality in a month, from the estimates of each contract
+     * between its first and latest reading
+     */
+    private double expected(String municipality, int month) throws UtilityException {
+        long start = LocalDate.of(YEAR, month, 1).toEpochDay();
+        long end = LocalDate.of(YEAR, month, 1).plusMonths(1).toEpochDay();
+        double total = 0;
+        for(String contract : contracts) {
+            if(!com.getContract(contract).getServicePoint().getMunicipality().equals(municipality)) continue;
+            TreeSet<String> dates = new TreeSet<>(com.getReadings(contract).keySet());
+            if(dates.size()<2) continue;
+            long first = LocalDate.parse(dates.first()).toEpochDay();
+            long last = LocalDate.parse(dates.last()).toEpochDay();
+            long from = Math.min(Math.max(start, first), last);
+            long to = Math.min(Math.max(end, first), last);
+            total += com.getEstimatedReading(contract, LocalDate.ofEpochDay(to).toString())
+                    - com.getEstimatedReading(contract, LocalDate.ofEpochDay(from).toString());
+        }
+        return total;
+    }
+
+    private void check() throws UtilityException {
+        for(String municipality : MUNICIPALITIES) {
+            List<Double> consumption = com.getMunicipalityConsumption(municipality, 1, 12, YEAR);
+            assertEquals(12, consumption.size());
+            for(int m=1; m<=12; ++m) assertEquals(municipality + " month " + m, expected(municipality, m), consumption.get(m-1), 1e-6);
+        }
+    }
+
+    @Test
+    public void testOutOfOrderReadings() throws UtilityException {
+        Random rnd = new Random(11);
+        List<Reading> readings = new ArrayList<>();
+        for(int c=0; c<contracts.size(); ++c) {
+            double value = 0;
+            for(int day=rnd.nextInt(60); day<366; day+=1+rnd.nextInt(40)) {
+                value += rnd.nextInt(500);
+                readings.add(new Reading(contracts.get(c), meters.get(c), LocalDate.of(YEAR, 1, 1).plusDays(day).toString(), value));
+            }
+        }
+        Collections.shuffle(readings, rnd);
+        int half = readings.size()/2;
+        for(Reading r : readings.subList(0, half)) com.addReading(r.getContractcode(), r.getMetercode(), r.getDate(), r.getValue());
+        check();
+        assertFalse(com.addReadings(readings.subList(half, readings.size()).stream()).hasRejected());
+        check();
+        // corrections of readings already received
+        for(int i=0; i<20; ++i) {
+            Reading r = readings.get(rnd.nextInt(readings.size()));
+            com.addReading(r.getContractcode(), r.getMetercode(), r.getDate(), r.getValue() + 50);
+        }
+        check();
+    }
+
+    @Test
+    public void testRegion() throws UtilityException {
+        com.addReading(contracts.get(0), meters.get(0), "2024-01-16", 100);
+        com.addReading(contracts.get(0), meters.get(0), "2024-02-15", 400);
+        com.defineRegion("Torino area", "Torino", "Moncalieri");
+        com.addReading(contracts.get(1), meters.get(1), "2024-02-01", 0);
+        com.addReading(contracts.get(1), meters.get(1), "2024-03-01", 290);
+        com.addReading(contracts.get(2), meters.get(2), "2024-02-01", 0);
+        com.addReading(contracts.get(2), meters.get(2), "2024-03-01", 1000);
+
+        // 16 days in January and 14 in February for the first contract, all February for the second
+        assertEquals(List.of(160.0, 140.0, 0.0), com.getMunicipalityConsumption("Torino", 1, 3, YEAR));
+        assertEquals(List.of(160.0, 430.0, 0.0), com.getRegionConsumption("Torino area", 1, 3, YEAR));
+        assertEquals(List.of(0.0, 1000.0, 0.0), com.getMunicipalityConsumption("Milano", 1, 3, YEAR));
+
+        // a late reading moves consumption between the months of its neighbours
+        com.addReading(contracts.get(0), meters.get(0), "2024-02-01", 150);
+        assertEquals(List.of(50.0, 250.0), com.getMunicipalityConsumption("Torino", 1, 2, YEAR));
+        assertEquals(List.of(50.0, 540.0), com.getRegionConsumption("Torino area", 1, 2, YEAR));
+
+        assertThrows(UtilityException.class, () -> com.getMunicipalityConsumption("Roma", 1, 3, YEAR));
+        assertThrows(UtilityException.class, () -> com.getRegionConsumption("Lombardia", 1, 3, YEAR));
+        assertThrows(UtilityException.class, () -> com.defineRegion("Torino area", "Milano"));
+        assertThrows(UtilityException.class, () -> com.defineRegion("Cintura", "Moncalieri"));
+        // a mistyped municipality is rejected and not registered
+        assertThrows(UtilityException.class, () -> com.defineRegion("Lombardia", "Milano", "Milan"));
+        assertThrows(UtilityException.class, () -> com.getMunicipalityConsumption("Milan", 1, 3, YEAR));
+        assertThrows(UtilityException.class, () -> com.getRegionConsumption("Lombardia", 1, 3, YEAR));
+    }
+
+    @Test
+    public void testRegionDuplicateMembers() throws UtilityException {
+        com.addReading(contracts.get(2), meters.get(2), "2024-02-01", 0);
+        com.addReading(contracts.get(2), meters.get(2), "2024-03-01", 1000);
+        com.defineRegion("Lombardia", "Milano", "Milano");
+        assertEquals(List.of(1000.0), com.getRegionConsumption("Lombardia", 2, 2, YEAR));
+        com.addReading(contracts.get(2), meters.get(2), "2024-04-01", 1500);
+        assertEquals(List.of(1000.0, 500.0), com.getRegionConsumption("Lombardia", 2, 3, YEAR));
+    }
+}
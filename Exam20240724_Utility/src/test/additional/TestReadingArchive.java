@@ -0,0 +1,154 @@
+package test.additional;
+
+import utility.Utility;
+import utility.UtilityException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestReadingArchive {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Utility com;
+    private final List<String> contracts = new ArrayList<>();
+    private final List<String> meters = new ArrayList<>();
+    private static final LocalDate START = LocalDate.of(2023, 1, 1);
+
+    @Before
+    public void setUp() throws UtilityException {
+        com = new Utility();
+        populate(com, contracts, meters);
+    }
+
+    private static void populate(Utility com, List<String> contracts, List<String> meters) throws UtilityException {
+        String user = com.addUser("DRGMRA47P03H501B", "Mario", "Draghi", "Via Roma 1, Roma", "mario.draghi@eu.eu");
+        Random rnd = new Random(17);
+        // enough contracts for more than one segment file
+        for(int c=0; c<1500; ++c) {
+            String pdp = com.defineServicePoint("Torino", "Via " + c, 45.06, 7.66);
+            String meter = com.addMeter("SN" + c, "brand", "model", "m^3");
+            com.installMeter(pdp, meter);
+            meters.add(meter);
+            String contract = com.signContract(user, pdp);
+            contracts.add(contract);
+            double value = rnd.nextInt(1000);
+            for(int day=rnd.nextInt(20); day<730; day+=1+rnd.nextInt(30)) {
+                value += c%3==0 ? rnd.nextInt(100) : rnd.nextInt(10_000)/100.0;
+                com.addReading(contract, meter, START.plusDays(day).toString(), value);
+            }
+        }
+    }
+
+    private Map<String, Object> snapshot() throws UtilityException, IOException {
+        Map<String, Object> state = new HashMap<>();
+        for(String contract : contracts) {
+            state.put(contract, com.getReadings(contract));
+            List<Double> estimates = new ArrayList<>();
+            for(int day=0; day<760; day+=9) {
+                try {
+                    estimates.add(com.getEstimatedReading(contract, START.plusDays(day).toString()));
+                } catch(UtilityException e) {
+                    estimates.add(Double.NaN);
+                }
+            }
+            state.put(contract + " estimates", estimates);
+            state.put(contract + " latest", com.getLatestReading(contract));
+        }
+        state.put("Torino", com.getMunicipalityConsumption("Torino", 1, 12, 2023));
+        StringWriter bills = new StringWriter();
+        com.writeBillBreakdowns(1, 12, 2023, bills, 2);
+        state.put("bills", bills.toString());
+        return state;
+    }
+
+    @Test
+    public void testArchivedReadingsAreTransparent() throws UtilityException, IOException {
+        Map<String, Object> before = snapshot();
+        Path directory = folder.getRoot().toPath().resolve("archive");
+
+        int archived = com.archiveReadings(directory, "2023-09-01");
+        assertTrue(archived > 0);
+        assertTrue(Files.exists(directory.resolve("readings-0.seg")));
+        assertTrue(Files.exists(directory.resolve("readings-1.seg")));
+        assertEquals(before, snapshot());
+
+        // a later horizon extends the archive of each contract
+        assertTrue(com.archiveReadings(directory, "2024-06-01") > 0);
+        assertEquals(before, snapshot());
+        assertEquals(0, com.archiveReadings(directory, "2024-06-01"));
+
+        Utility empty = new Utility();
+        assertEquals(0, empty.archiveReadings(directory, "2024-06-01"));
+        assertThrows(UtilityException.class, () -> com.archiveReadings(directory, "2024-06-31"));
+    }
+
+    @Test
+    public void testLateReadings() throws UtilityException, IOException {
+        Path directory = folder.getRoot().toPath();
+        String contract = contracts.get(0);
+        String meter = meters.get(0);
+        com.archiveReadings(directory, "2024-01-01");
+
+        Map<String, Double> readings = new HashMap<>(com.getReadings(contract));
+        String first = readings.keySet().stream().min(String::compareTo).get();
+        String late = LocalDate.parse(first).plusDays(1).toString();
+        assertFalse(readings.containsKey(late));
+        com.addReading(contract, meter, late, readings.get(first));
+        com.addReading(contract, meter, first, readings.get(first) - 1);
+        readings.put(late, readings.get(first));
+        readings.put(first, readings.get(first) - 1);
+        assertEquals(readings, com.getReadings(contract));
+        assertEquals(readings.get(late), com.getEstimatedReading(contract, late), 0.0);
+
+        // the restored contract is archived again with the others
+        com.archiveReadings(directory, "2024-01-01");
+        assertEquals(readings, com.getReadings(contract));
+        assertEquals(readings.get(late), com.getEstimatedReading(contract, late), 0.0);
+    }
+
+    @Test
+    public void testCorrectionOfFirstKeptReading() throws UtilityException, IOException {
+        Path directory = folder.getRoot().toPath();
+        String horizon = "2024-01-01";
+        com.archiveReadings(directory, horizon);
+        Utility reference = new Utility();
+        populate(reference, new ArrayList<>(), new ArrayList<>());
+
+        Map<String, Map<String, Double>> expected = new HashMap<>();
+        for(int c=0; c<contracts.size(); c+=7) {
+            String contract = contracts.get(c);
+            Map<String, Double> readings = new HashMap<>(com.getReadings(contract));
+            // the latest reading before the horizon is the first one kept in memory
+            String kept = readings.keySet().stream().filter(d -> d.compareTo(horizon)<0).max(String::compareTo).get();
+            double value = readings.get(kept) + 3;
+            com.addReading(contract, meters.get(c), kept, value);
+            reference.addReading(contract, meters.get(c), kept, value);
+            readings.put(kept, value);
+            expected.put(contract, readings);
+        }
+        assertEquals("The corrected readings should not be restored from the archive", 0, com.archiveReadings(directory, horizon));
+        for(Map.Entry<String, Map<String, Double>> contract : expected.entrySet()) {
+            assertEquals(contract.getValue(), com.getReadings(contract.getKey()));
+        }
+        for(int year=2023; year<=2024; ++year) {
+            List<Double> consumption = reference.getMunicipalityConsumption("Torino", 1, 12, year);
+            List<Double> found = com.getMunicipalityConsumption("Torino", 1, 12, year);
+            for(int month=0; month<12; ++month) assertEquals(consumption.get(month), found.get(month), 1e-6);
+        }
+    }
+}
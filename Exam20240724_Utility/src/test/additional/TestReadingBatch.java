@@ -0,0 +1,107 @@
+package test.additional;
+
+import utility.Reading;
+import utility.ReadingBatchResult;
+import utility.Utility;
+import utility.UtilityException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestReadingBatch {
+    private Utility com;
+    private final String[] meters = new String[3];
+    private final String[] contracts = new String[3];
+    private String spareMeter;
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Before
+    public void setUp() throws UtilityException {
+        com = new Utility();
+        String user = com.addUser("DRGMRA47P03H501B", "Mario", "Draghi", "Via Roma 1, Roma", "mario.draghi@eu.eu");
+        for(int i=0; i<contracts.length; ++i) {
+            String pdp = com.defineServicePoint("Torino", "Via " + i, 45.06, 7.66);
+            meters[i] = com.addMeter("SN" + i, "brand", "model", "m^3");
+            com.installMeter(pdp, meters[i]);
+            contracts[i] = com.signContract(user, pdp);
+        }
+        spareMeter = com.addMeter("SN", "brand", "model", "m^3");
+    }
+
+    @Test
+    public void testSameAsOneByOne() throws UtilityException {
+        Utility single = new Utility();
+        String user = single.addUser("DRGMRA47P03H501B", "Mario", "Draghi", "Via Roma 1, Roma", "mario.draghi@eu.eu");
+        for(int i=0; i<contracts.length; ++i) {
+            String pdp = single.defineServicePoint("Torino", "Via " + i, 45.06, 7.66);
+            single.installMeter(pdp, single.addMeter("SN" + i, "brand", "model", "m^3"));
+            single.signContract(user, pdp);
+        }
+
+        Random rnd = new Random(5);
+        List<Reading> readings = new ArrayList<>();
+        for(int c=0; c<contracts.length; ++c) {
+            for(int d=0; d<300; ++d) readings.add(new Reading(contracts[c], meters[c], START.plusDays(rnd.nextInt(400)).toString(), rnd.nextInt(10_000)));
+        }
+        Collections.shuffle(readings, rnd);
+        // half before the batch, to merge with readings already stored
+        for(Reading r : readings.subList(0, 450)) {
+            com.addReading(r.getContractcode(), r.getMetercode(), r.getDate(), r.getValue());
+        }
+        for(Reading r : readings) single.addReading(r.getContractcode(), r.getMetercode(), r.getDate(), r.getValue());
+
+        ReadingBatchResult result = com.addReadings(readings.subList(450, readings.size()).stream());
+        assertEquals(450, result.getAccepted());
+        assertFalse(result.hasRejected());
+        for(String contract : contracts) {
+            assertEquals(single.getReadings(contract), com.getReadings(contract));
+            List<Reading> sorted = com.getContract(contract).getReadings();
+            for(int i=1; i<sorted.size(); ++i) assertTrue(sorted.get(i-1).getDate().compareTo(sorted.get(i).getDate())<0);
+            assertEquals(single.getLatestReading(contract), com.getLatestReading(contract), 0.0);
+        }
+    }
+
+    @Test
+    public void testRejectedRecords() throws UtilityException {
+        String[] ids = {contracts[0], "C99", contracts[1], contracts[1], contracts[2], contracts[2], null, contracts[0]};
+        String[] ms = {meters[0], meters[0], meters[0], spareMeter, meters[2], "MT99", meters[1], meters[0]};
+        String[] dates = {"2024-01-01", "2024-01-01", "2024-01-01", "2024-01-01", "2024-02-30", "2024-01-01", "2024-01-01", "2024-01-11"};
+        double[] values = {100, 1, 1, 1, 1, 1, 1, 200};
+
+        ReadingBatchResult result = com.addReadings(ids, ms, dates, values);
+        assertEquals(2, result.getAccepted());
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), new ArrayList<>(result.getRejected().keySet()));
+        assertTrue(result.getRejected().get(1).contains("C99"));
+        assertTrue(result.getRejected().get(4).contains("2024-02-30"));
+        assertTrue(result.getRejected().get(5).contains("MT99"));
+
+        assertEquals(Map.of("2024-01-01", 100.0, "2024-01-11", 200.0), com.getReadings(contracts[0]));
+        assertTrue(com.getReadings(contracts[1]).isEmpty());
+        assertEquals(150.0, com.getEstimatedReading(contracts[0], "2024-01-06"), 0.0001);
+
+        assertThrows(IllegalArgumentException.class, () -> com.addReadings(ids, ms, dates, new double[1]));
+    }
+
+    @Test
+    public void testLaterRecordReplaces() {
+        ReadingBatchResult result = com.addReadings(List.of(
+                new Reading(contracts[0], meters[0], "2024-03-10", 30),
+                new Reading(contracts[0], meters[0], "2024-03-01", 10),
+                new Reading(contracts[0], meters[0], "2024-03-10", 35),
+                new Reading(contracts[0], meters[0], "2024-03-05", 20)).stream());
+        assertEquals(4, result.getAccepted());
+        assertEquals(Map.of("2024-03-01", 10.0, "2024-03-05", 20.0, "2024-03-10", 35.0), com.getReadings(contracts[0]));
+
+        com.addReadings(List.of(new Reading(contracts[0], meters[0], "2024-03-05", 25)).stream());
+        assertEquals(25.0, com.getReadings(contracts[0]).get("2024-03-05"), 0.0);
+        assertEquals(3, com.getReadings(contracts[0]).size());
+    }
+}
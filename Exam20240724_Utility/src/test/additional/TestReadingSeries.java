@@ -0,0 +1,77 @@
+package test.additional;
+
+import utility.Reading;
+import utility.Utility;
+import utility.UtilityException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class TestReadingSeries {
+    private Utility com;
+    private String meter;
+    private String contract;
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Before
+    public void setUp() throws UtilityException {
+        com = new Utility();
+        String pdp = com.defineServicePoint("Torino", "Corso Duca degli Abruzzi 24", 45.06, 7.66);
+        meter = com.addMeter("1234", "brand", "model", "m^3");
+        com.installMeter(pdp, meter);
+        String user = com.addUser("DRGMRA47P03H501B", "Mario", "Draghi", "Via Roma 1, Roma", "mario.draghi@eu.eu");
+        contract = com.signContract(user, pdp);
+    }
+
+    @Test
+    public void testOutOfOrderReadings() throws UtilityException {
+        Random rnd = new Random(3);
+        List<Integer> offsets = new ArrayList<>();
+        for(int i=0; i<400; ++i) offsets.add(i*3);
+        Collections.shuffle(offsets, rnd);
+        TreeMap<Long,Double> expected = new TreeMap<>();
+        for(int offset : offsets) {
+            LocalDate date = START.plusDays(offset);
+            com.addReading(contract, meter, date.toString(), 10.0*offset);
+            expected.put(date.toEpochDay(), 10.0*offset);
+        }
+
+        List<Reading> readings = com.getContract(contract).getReadings();
+        assertEquals(400, readings.size());
+        for(int i=1; i<readings.size(); ++i) assertTrue(readings.get(i-1).getDate().compareTo(readings.get(i).getDate())<0);
+        assertEquals(10.0*399*3, com.getLatestReading(contract), 0.0001);
+
+        for(int day=0; day<1300; day+=7) {
+            LocalDate date = START.plusDays(day);
+            // readings are linear in the day, so any interpolation gives 10*day
+            assertEquals("Estimate at " + date, 10.0*day, com.getEstimatedReading(contract, date.toString()), 0.0001);
+        }
+        assertThrows(UtilityException.class, () -> com.getEstimatedReading(contract, START.minusDays(1).toString()));
+    }
+
+    @Test
+    public void testSameDateReplaces() throws UtilityException {
+        com.addReading(contract, meter, "2024-04-18", 100.0);
+        com.addReading(contract, meter, "2024-04-28", 120.0);
+        com.addReading(contract, meter, "2024-04-18", 110.0);
+        Map<String, Double> readings = com.getReadings(contract);
+        assertEquals(2, readings.size());
+        assertEquals(110.0, readings.get("2024-04-18"), 0.0001);
+        assertEquals(115.0, com.getEstimatedReading(contract, "2024-04-23"), 0.0001);
+    }
+
+    @Test
+    public void testInvalidDate() {
+        assertThrows(UtilityException.class, () -> com.addReading(contract, meter, "2024-13-01", 100.0));
+        assertTrue(Double.isNaN(com.getLatestReading(contract)));
+    }
+}
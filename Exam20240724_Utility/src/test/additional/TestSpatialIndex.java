@@ -0,0 +1,131 @@
+package test.additional;
+
+import utility.Point;
+import utility.ServicePoint;
+import utility.Utility;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class TestSpatialIndex {
+    private Utility com;
+    private List<String> points;
+
+    @Before
+    public void setUp() {
+        com = new Utility();
+        points = new ArrayList<>();
+        Random rnd = new Random(5);
+        // a dense city and sparse points around it
+        for(int i=0; i<20000; ++i) {
+            boolean city = i%4!=0;
+            double lat = city ? 45.0 + rnd.nextDouble()*0.2 : 44.0 + rnd.nextDouble()*3;
+            double lon = city ? 7.6 + rnd.nextDouble()*0.2 : 6.0 + rnd.nextDouble()*4;
+            String sp = com.defineServicePoint("Torino", "Via " + i, lat, lon);
+            points.add(sp);
+            if(i%3==0) com.installMeter(sp, com.addMeter("SN" + i, "brand", "model", "m^3"));
+        }
+    }
+
+    private static double distance(Point p, double lat, double lon) {
+        double dLat = Math.toRadians(p.getLat()-lat), dLon = Math.toRadians(p.getLon()-lon);
+        double a = Math.sin(dLat/2)*Math.sin(dLat/2) + Math.cos(Math.toRadians(lat))*Math.cos(Math.toRadians(p.getLat()))*Math.sin(dLon/2)*Math.sin(dLon/2);
+        return 2*6371.0088*Math.asin(Math.sqrt(a));
+    }
+
+    private List<String> bruteForce(double lat, double lon, Predicate<ServicePoint> filter) {
+        Map<String,Double> distances = new HashMap<>();
+        for(String id : points) distances.put(id, distance(com.getServicePoint(id).getPosition(), lat, lon));
+        return points.stream().filter(id -> filter.test(com.getServicePoint(id)))
+                .sorted(Comparator.comparingDouble(distances::get)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testNearest() {
+        Random rnd = new Random(8);
+        Predicate<ServicePoint> noMeter = sp -> sp.getMeter().isEmpty();
+        for(int q=0; q<50; ++q) {
+            double lat = 43.5 + rnd.nextDouble()*4, lon = 5.5 + rnd.nextDouble()*5;
+            int k = 1 + rnd.nextInt(30);
+            assertEquals(bruteForce(lat, lon, sp -> true).subList(0, k), com.getNearestServicePoints(lat, lon, k, sp -> true));
+            assertEquals(bruteForce(lat, lon, noMeter).subList(0, k), com.getNearestServicePoints(lat, lon, k, noMeter));
+        }
+        // far away from all the points
+        assertEquals(bruteForce(10, 30, sp -> true).subList(0, 3), com.getNearestServicePoints(10, 30, 3, sp -> true));
+        assertEquals(points.size(), com.getNearestServicePoints(45, 7, 100000, sp -> true).size());
+        assertTrue(com.getNearestServicePoints(45, 7, 5, sp -> false).isEmpty());
+    }
+
+    @Test
+    public void testWithin() {
+        Predicate<ServicePoint> noMeter = sp -> sp.getMeter().isEmpty();
+        List<String> expected = bruteForce(45.1, 7.7, noMeter).stream()
+                .filter(id -> distance(com.getServicePoint(id).getPosition(), 45.1, 7.7)<=2).collect(Collectors.toList());
+        List<String> found = com.getServicePointsWithin(45.1, 7.7, 2, noMeter);
+        assertFalse(found.isEmpty());
+        assertEquals(expected, found);
+        for(String id : found) assertTrue(com.getServicePoint(id).getMeter().isEmpty());
+    }
+
+    @Test
+    public void testBox() {
+        List<String> expected = points.stream().filter(id -> {
+            Point p = com.getServicePoint(id).getPosition();
+            return p.getLat()>=45.05 && p.getLat()<=45.1 && p.getLon()>=7.65 && p.getLon()<=7.7;
+        }).collect(Collectors.toList());
+        assertEquals(new HashSet<>(expected), new HashSet<>(com.getServicePointsInBox(45.05, 7.65, 45.1, 7.7)));
+        assertEquals(points.size(), com.getServicePointsInBox(-90, -180, 90, 180).size());
+        assertTrue(com.getServicePointsInBox(0, 0, 1, 1).isEmpty());
+    }
+
+    @Test
+    public void testAntimeridian() {
+        Utility pacific = new Utility();
+        List<String> ids = new ArrayList<>();
+        Map<String,Point> positions = new HashMap<>();
+        Random rnd = new Random(11);
+        for(int i=0; i<3000; ++i) {
+            double lat = -20 + rnd.nextDouble()*5;
+            double lon = i%10==0 ? (i%20==0 ? 180 : -180) : (rnd.nextBoolean() ? 179 + rnd.nextDouble() : -180 + rnd.nextDouble());
+            String sp = pacific.defineServicePoint("Fiji", "Road " + i, lat, lon);
+            ids.add(sp);
+            positions.put(sp, pacific.getServicePoint(sp).getPosition());
+        }
+        // boxes crossing the meridian, given with minLon > maxLon or with maxLon beyond 180
+        for(double[] box : new double[][]{{-19, 179.5, -17, -179.5}, {-19, 179.5, -17, 180.5}, {-19, -180.5, -17, -179.5}}) {
+            Set<String> expected = ids.stream().filter(id -> {
+                Point p = positions.get(id);
+                return p.getLat()>=box[0] && p.getLat()<=box[2] && (p.getLon()>=179.5 || p.getLon()<=-179.5);
+            }).collect(Collectors.toSet());
+            assertFalse(expected.isEmpty());
+            Collection<String> found = pacific.getServicePointsInBox(box[0], box[1], box[2], box[3]);
+            assertEquals(found.size(), new HashSet<>(found).size());
+            assertEquals(expected, new HashSet<>(found));
+        }
+        assertEquals(ids.size(), pacific.getServicePointsInBox(-90, -180, 90, 180).size());
+        assertEquals(ids.size(), pacific.getServicePointsInBox(-90, 0, 90, 0+360).size());
+
+        for(int q=0; q<30; ++q) {
+            double lat = -19 + rnd.nextDouble()*3, lon = rnd.nextBoolean() ? 179.9 + rnd.nextDouble()*0.1 : -180 + rnd.nextDouble()*0.1;
+            List<String> byDistance = ids.stream().sorted(Comparator.comparingDouble(id -> distance(positions.get(id), lat, lon))).collect(Collectors.toList());
+            int k = 1 + rnd.nextInt(20);
+            assertEquals(byDistance.subList(0, k), pacific.getNearestServicePoints(lat, lon, k, sp -> true));
+            double km = 5 + rnd.nextDouble()*50;
+            List<String> expected = byDistance.stream().filter(id -> distance(positions.get(id), lat, lon)<=km).collect(Collectors.toList());
+            assertEquals(expected, pacific.getServicePointsWithin(lat, lon, km, sp -> true));
+        }
+    }
+}
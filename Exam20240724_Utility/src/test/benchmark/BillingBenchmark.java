@@ -0,0 +1,73 @@
+package test.benchmark;
+
+import utility.Utility;
+import utility.UtilityException;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the yearly billing of all the contracts, computing the breakdowns
+ * one contract at a time with {@code getBillBreakdown} and with the parallel
+ * billing run, writing to a discarding writer.
+ * <p>
+ * Usage: {@code BillingBenchmark [contracts] [readings per contract] [max threads]},
+ * default 100 000 contracts with 60 readings and as many threads as available processors.
+ */
+public class BillingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int contracts = args.length>0 ? Integer.parseInt(args[0]) : 100_000;
+        int readings = args.length>1 ? Integer.parseInt(args[1]) : 60;
+        int maxThreads = args.length>2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Utility com = new Utility();
+        List<String> ids = new ArrayList<>();
+        String user = com.addUser("DRGMRA47P03H501B", "Mario", "Draghi", "Via Roma 1, Roma", "mario.draghi@eu.eu");
+        LocalDate start = LocalDate.of(2023, 12, 25);
+        for(int c=0; c<contracts; ++c) {
+            String pdp = com.defineServicePoint("Torino", "Via " + c, 45.06, 7.66);
+            String meter = com.addMeter("SN" + c, "brand", "model", "m^3");
+            com.installMeter(pdp, meter);
+            String contract = com.signContract(user, pdp);
+            ids.add(contract);
+            for(int r=0; r<readings; ++r) com.addReading(contract, meter, start.plusDays(r*(375/readings)).toString(), 10.0*r + c%7);
+        }
+
+        for(int round=0; round<3; ++round) {
+            long begin = System.nanoTime();
+            long lines = 0;
+            try(Writer out = discard()) {
+                for(String id : ids) {
+                    for(String line : com.getBillBreakdown(id, 1, 12, 2024)) {
+                        out.write(id);
+                        out.write(' ');
+                        out.write(line);
+                        out.write('\n');
+                        ++lines;
+                    }
+                }
+            } catch(UtilityException e) {
+                throw new IllegalStateException(e);
+            }
+            System.out.printf("one by one      %,d lines  %8.1f ms%n", lines, (System.nanoTime()-begin)/1e6);
+            for(int threads=1; threads<=maxThreads; threads*=2) {
+                begin = System.nanoTime();
+                int billed;
+                try(Writer out = discard()) {
+                    billed = com.writeBillBreakdowns(1, 12, 2024, out, threads);
+                }
+                System.out.printf("run %2d threads  %,d bills  %8.1f ms%n", threads, billed, (System.nanoTime()-begin)/1e6);
+            }
+        }
+    }
+
+    private static Writer discard() {
+        return new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream()), 1<<16);
+    }
+}
@@ -0,0 +1,76 @@
+package test.benchmark;
+
+import utility.ReadingBatchResult;
+import utility.Utility;
+import utility.UtilityException;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Measures the ingestion of daily readings, as pushed by a head-end once a day
+ * for all the meters, adding them one at a time with {@code addReading} and in
+ * batches with {@code addReadings}. A few records per batch are invalid.
+ * <p>
+ * Usage: {@code IngestBenchmark [contracts] [days]},
+ * default 200 000 contracts and 30 days.
+ */
+public class IngestBenchmark {
+
+    public static void main(String[] args) throws UtilityException {
+        int contracts = args.length>0 ? Integer.parseInt(args[0]) : 200_000;
+        int days = args.length>1 ? Integer.parseInt(args[1]) : 30;
+        LocalDate start = LocalDate.of(2024, 1, 1);
+
+        for(int round=0; round<3; ++round) {
+            Utility com = new Utility();
+            String[] ids = new String[contracts];
+            String[] meters = new String[contracts];
+            setUp(com, ids, meters);
+            long begin = System.nanoTime();
+            long rejected = 0;
+            for(int d=0; d<days; ++d) {
+                String date = start.plusDays(d).toString();
+                for(int c=0; c<contracts; ++c) {
+                    try {
+                        com.addReading(ids[c], c%10_000==0 ? "MT0" : meters[c], date, 10.0*d + c%7);
+                    } catch(UtilityException e) {
+                        ++rejected;
+                    }
+                }
+            }
+            report("one by one", contracts*(long)days, rejected, begin);
+
+            com = new Utility();
+            setUp(com, ids, meters);
+            begin = System.nanoTime();
+            rejected = 0;
+            String[] batchMeters = meters.clone();
+            for(int c=0; c<contracts; c+=10_000) batchMeters[c] = "MT0";
+            double[] values = new double[contracts];
+            String[] dates = new String[contracts];
+            for(int d=0; d<days; ++d) {
+                Arrays.fill(dates, start.plusDays(d).toString());
+                for(int c=0; c<contracts; ++c) values[c] = 10.0*d + c%7;
+                ReadingBatchResult result = com.addReadings(ids, batchMeters, dates, values);
+                rejected += result.getRejected().size();
+            }
+            report("batches", contracts*(long)days, rejected, begin);
+        }
+    }
+
+    private static void setUp(Utility com, String[] ids, String[] meters) throws UtilityException {
+        String user = com.addUser("DRGMRA47P03H501B", "Mario", "Draghi", "Via Roma 1, Roma", "mario.draghi@eu.eu");
+        for(int c=0; c<ids.length; ++c) {
+            String pdp = com.defineServicePoint("Torino", "Via " + c, 45.06, 7.66);
+            meters[c] = com.addMeter("SN" + c, "brand", "model", "m^3");
+            com.installMeter(pdp, meters[c]);
+            ids[c] = com.signContract(user, pdp);
+        }
+    }
+
+    private static void report(String mode, long records, long rejected, long begin) {
+        double elapsed = System.nanoTime()-begin;
+        System.out.printf("%-11s %,d records  %,d rejected  %8.1f ms  %6.1f ns/record%n", mode, records, rejected, elapsed/1e6, elapsed/records);
+    }
+}
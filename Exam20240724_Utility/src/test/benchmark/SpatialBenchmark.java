@@ -0,0 +1,70 @@
+package test.benchmark;
+
+import utility.Utility;
+
+import java.util.Random;
+
+/**
+ * Measures the spatial queries over a large number of service points,
+ * spread over Italy with a few dense urban areas. One third of the points
+ * has an installed meter.
+ * <p>
+ * Usage: {@code SpatialBenchmark [points] [queries]},
+ * default 5 000 000 points (run with {@code -Xmx3g}) and 100 000 queries of each kind.
+ */
+public class SpatialBenchmark {
+
+    public static void main(String[] args) {
+        int points = args.length>0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int queries = args.length>1 ? Integer.parseInt(args[1]) : 100_000;
+        double[][] cities = {{45.07, 7.69}, {45.46, 9.19}, {41.90, 12.50}, {40.85, 14.27}, {44.49, 11.34}};
+
+        Utility com = new Utility();
+        Random rnd = new Random(1);
+        long start = System.nanoTime();
+        for(int i=0; i<points; ++i) {
+            double lat, lon;
+            if(i%2==0) {
+                double[] city = cities[rnd.nextInt(cities.length)];
+                lat = city[0] + rnd.nextGaussian()*0.1;
+                lon = city[1] + rnd.nextGaussian()*0.1;
+            } else {
+                lat = 37 + rnd.nextDouble()*9;
+                lon = 7 + rnd.nextDouble()*11;
+            }
+            String sp = com.defineServicePoint("Municipality", "Address", lat, lon);
+            if(i%3==0) com.installMeter(sp, com.addMeter("SN", "brand", "model", "m^3"));
+        }
+        System.out.printf("%,d points defined  %8.1f ms%n", points, (System.nanoTime()-start)/1e6);
+
+        for(int round=0; round<3; ++round) {
+            long found = 0;
+            start = System.nanoTime();
+            for(int q=0; q<queries; ++q) {
+                double[] city = cities[q%cities.length];
+                found += com.getNearestServicePoints(city[0] + rnd.nextGaussian()*0.2, city[1] + rnd.nextGaussian()*0.2, 10, sp -> true).size();
+            }
+            report("nearest 10", queries, found, start);
+
+            found = 0;
+            start = System.nanoTime();
+            for(int q=0; q<queries; ++q) {
+                found += com.getServicePointsWithin(37 + rnd.nextDouble()*9, 7 + rnd.nextDouble()*11, 2, sp -> sp.getMeter().isEmpty()).size();
+            }
+            report("without meter within 2 km", queries, found, start);
+
+            found = 0;
+            start = System.nanoTime();
+            for(int q=0; q<queries; ++q) {
+                double lat = 37 + rnd.nextDouble()*9, lon = 7 + rnd.nextDouble()*11;
+                found += com.getServicePointsInBox(lat, lon, lat+0.05, lon+0.05).size();
+            }
+            report("box 0.05 degrees", queries, found, start);
+        }
+    }
+
+    private static void report(String query, int queries, long found, long start) {
+        double elapsed = System.nanoTime()-start;
+        System.out.printf("%-26s %,8d queries  %,10d found  %8.1f ms  %6.2f us/query%n", query, queries, found, elapsed/1e6, elapsed/1e3/queries);
+    }
+}
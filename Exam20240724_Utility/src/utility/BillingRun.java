@@ -0,0 +1,125 @@
+package utility;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Computes the monthly bill breakdown of many contracts.
+ * <p>
+ * The month boundaries are computed once; the readings of each contract
+ * are then walked once to estimate all of them. Contracts are split in
+ * chunks processed by a pool of threads, and the text of the chunks is
+ * written in contract order by the calling thread. The number of chunks
+ * submitted but not yet written is bounded to limit memory usage.
+ */
+class BillingRun {
+    static final int CHUNK_CONTRACTS=1024;
+    private final LocalDate[] boundaries;
+    private final long[] days;
+    private final int threads;
+
+    BillingRun(int monthStart, int monthEnd, int year, int threads) {
+        if(threads<1) throw new IllegalArgumentException("Invalid number of threads: "+threads);
+        this.threads = threads;
+        int months=Math.max(0, monthEnd-monthStart+1);
+        boundaries=new LocalDate[months+1];
+        days=new long[months+1];
+        for(int m=0;m<=months;m++){
+            boundaries[m]=LocalDate.of(year, monthStart, 1).plusMonths(m);
+            days[m]=boundaries[m].toEpochDay();
+        }
+    }
+
+    /**
+     * Computes the breakdown of a single contract
+     *
+     * @return the breakdown lines, empty if there are no months,
+     *         {@code null} if it is not possible to get reading estimates
+     */
+    List<String> breakdown(ReadingSeries series){
+        if(days.length==1) return new ArrayList<>();
+        double[] estimates= new double[days.length];
+        if(!series.estimateAll(days, estimates)) return null;
+        List<String> breakdown= new ArrayList<>(days.length-1);
+        StringBuilder line= new StringBuilder();
+        for(int m=0;m+1<days.length;m++){
+            line.setLength(0);
+            breakdown.add(appendMonth(line, m, estimates).toString());
+        }
+        return breakdown;
+    }
+
+    private StringBuilder appendMonth(StringBuilder sb, int m, double[] estimates){
+        return sb.append(boundaries[m]).append("..").append(boundaries[m+1]).append(": ")
+                 .append(estimates[m]).append(" -> ").append(estimates[m+1]).append(" = ").append(estimates[m+1]-estimates[m]);
+    }
+
+    /**
+     * Writes the breakdown of the contracts, one line per contract and month
+     * prefixed by the contract id, or a single line if the estimates are not available.
+     * If there are no months nothing is written and all the contracts are billed.
+     *
+     * @return the number of contracts billed
+     */
+    int run(List<ContractImpl> contracts, Writer writer) throws IOException {
+        ExecutorService pool= Executors.newFixedThreadPool(threads);
+        Deque<Future<Bills>> pending= new ArrayDeque<>();
+        int billed=0;
+        try{
+            for(int from=0;from<contracts.size();from+=CHUNK_CONTRACTS){
+                List<ContractImpl> chunk=contracts.subList(from, Math.min(from+CHUNK_CONTRACTS, contracts.size()));
+                if(pending.size()>=2*threads) billed+=write(pending.poll().get(), writer);
+                pending.add(pool.submit(()->bill(chunk)));
+            }
+            while(!pending.isEmpty()) billed+=write(pending.poll().get(), writer);
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Billing interrupted");
+        }catch(ExecutionException e){
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if(e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IOException(e.getCause());
+        }finally{
+            pool.shutdownNow();
+        }
+        writer.flush();
+        return billed;
+    }
+
+    /**
+     * Text of the bills of a chunk of contracts
+     */
+    private static class Bills {
+        final String text;
+        final int billed;
+        Bills(String text, int billed) {
+            this.text = text;
+            this.billed = billed;
+        }
+    }
+
+    private static int write(Bills bills, Writer writer) throws IOException {
+        writer.write(bills.text);
+        return bills.billed;
+    }
+
+    private Bills bill(List<ContractImpl> chunk){
+        StringBuilder sb= new StringBuilder(chunk.size()*days.length*64);
+        double[] estimates= new double[days.length];
+        int billed=0;
+        if(days.length==1) return new Bills("", chunk.size());
+        for(ContractImpl contract: chunk){
+            if(!contract.getSeries().estimateAll(days, estimates)){
+                sb.append(contract.getId()).append(": estimate not available\n");
+                continue;
+            }
+            for(int m=0;m+1<days.length;m++) appendMonth(sb.append(contract.getId()).append(' '), m, estimates).append('\n');
+            billed++;
+        }
+        return new Bills(sb.toString(), billed);
+    }
+}
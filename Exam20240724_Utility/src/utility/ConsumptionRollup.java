@@ -0,0 +1,132 @@
+package utility;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Monthly consumption totals per municipality and per region.
+ * <p>
+ * The readings of a contract are seen as a line through consecutive
+ * readings, and the consumption of each segment between two readings is
+ * split among the months it spans in proportion to the days in each month.
+ * The totals are updated by the segments added and removed as readings
+ * arrive, so a reading inserted between two others moves consumption
+ * between the months covered by its neighbours, and no contract is
+ * re-estimated. Consumption is only counted between the first and the
+ * latest reading of a contract, it is not extrapolated.
+ * <p>
+ * Totals are kept by month in arrays that grow on both sides, so that a
+ * query over a range of months is proportional to the number of months.
+ */
+class ConsumptionRollup {
+    private final Map<String,MonthlyTotals> municipalities= new HashMap<>();
+    private final Map<String,MonthlyTotals> regions= new HashMap<>();
+
+    /**
+     * Consumption by month, indexed by months since year 0
+     */
+    private static class MonthlyTotals {
+        private MonthlyTotals region;
+        private int first=0;
+        private double[] totals= new double[0];
+
+        void add(int month, double amount){
+            if(totals.length==0){
+                first=month;
+                totals=new double[12];
+            }else if(month<first){
+                int shift=Math.max(first-month, totals.length/2);
+                double[] grown= new double[totals.length+shift];
+                System.arraycopy(totals, 0, grown, shift, totals.length);
+                totals=grown;
+                first-=shift;
+            }else if(month>=first+totals.length){
+                totals=Arrays.copyOf(totals, Math.max(month-first+1, totals.length+totals.length/2));
+            }
+            totals[month-first]+=amount;
+        }
+
+        double get(int month){
+            return month<first || month>=first+totals.length ? 0.0 : totals[month-first];
+        }
+
+        void addAll(MonthlyTotals other){
+            for(int m=0;m<other.totals.length;m++){
+                if(other.totals[m]!=0.0) add(other.first+m, other.totals[m]);
+            }
+        }
+    }
+
+    static int month(LocalDate date){
+        return date.getYear()*12+date.getMonthValue()-1;
+    }
+
+    void addMunicipality(String municipality){
+        municipalities.computeIfAbsent(municipality, m->new MonthlyTotals());
+    }
+
+    boolean hasMunicipality(String municipality){
+        return municipalities.containsKey(municipality);
+    }
+
+    boolean hasRegion(String region){
+        return regions.containsKey(region);
+    }
+
+    /**
+     * Groups municipalities in a region, which starts from the current totals of the municipalities;
+     * a municipality listed more than once is counted once. Municipalities must be known.
+     *
+     * @return {@code false} if a municipality already belongs to a region
+     */
+    boolean defineRegion(String region, Collection<String> members){
+        members=new LinkedHashSet<>(members);
+        for(String m: members) if(municipalities.get(m).region!=null) return false;
+        MonthlyTotals totals=regions.computeIfAbsent(region, r->new MonthlyTotals());
+        for(String m: members){
+            MonthlyTotals municipality=municipalities.get(m);
+            totals.addAll(municipality);
+            municipality.region=totals;
+        }
+        return true;
+    }
+
+    /**
+     * @return a listener updating the totals of the municipality with the segments of a series
+     */
+    ReadingSeries.SegmentListener listener(String municipality){
+        addMunicipality(municipality);
+        MonthlyTotals totals=municipalities.get(municipality);
+        return (fromDay, fromValue, toDay, toValue, sign)->segment(totals, fromDay, fromValue, toDay, toValue, sign);
+    }
+
+    private static void segment(MonthlyTotals totals, long fromDay, double fromValue, long toDay, double toValue, int sign){
+        MonthlyTotals region=totals.region;
+        double delta=sign*(toValue-fromValue);
+        LocalDate start=LocalDate.ofEpochDay(fromDay).withDayOfMonth(1);
+        int month=month(start);
+        for(long day=fromDay;day<toDay;month++){
+            start=start.plusMonths(1);
+            long end=Math.min(toDay, start.toEpochDay());
+            double amount=end-day==toDay-fromDay ? delta : delta*(end-day)/(toDay-fromDay);
+            totals.add(month, amount);
+            if(region!=null) region.add(month, amount);
+            day=end;
+        }
+    }
+
+    List<Double> municipality(String municipality, int monthStart, int monthEnd, int year){
+        return range(municipalities.get(municipality), monthStart, monthEnd, year);
+    }
+
+    List<Double> region(String region, int monthStart, int monthEnd, int year){
+        return range(regions.get(region), monthStart, monthEnd, year);
+    }
+
+    private static List<Double> range(MonthlyTotals totals, int monthStart, int monthEnd, int year){
+        List<Double> consumption= new ArrayList<>();
+        int first=year*12+monthStart-1;
+        for(int m=first;m<=year*12+monthEnd-1;m++) consumption.add(totals.get(m));
+        return consumption;
+    }
+}
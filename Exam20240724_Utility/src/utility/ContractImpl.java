@@ -1,5 +1,6 @@
 package utility;
 
+import java.time.LocalDate;
 import java.util.*;
 
 
@@ -7,7 +8,7 @@ public class ContractImpl implements Contract{
     private final String id;
     private User user;
     private ServicePoint servicepoint;
-    private List<Reading> readingsList = new ArrayList<>();
+    private final ReadingSeries readings = new ReadingSeries();
     public ContractImpl(String id, User user, ServicePoint servicepoint) {
         this.id = id;
         this.user = user;
@@ -25,12 +26,26 @@ public class ContractImpl implements Contract{
     public User getUser() {
         return user;
     }
+    /**
+     * Adds a reading, replacing the one of the same date if present
+     *
+     * @throws java.time.format.DateTimeParseException if the date is not valid
+     */
     @Override
     public void addReading(String mcode,String date,double value){
-        readingsList.add(new Reading(this.id, mcode, date, value));
+        readings.add(LocalDate.parse(date).toEpochDay(), value, mcode);
     }
+    /**
+     * @return the readings sorted by date, including the archived ones
+     */
     @Override
     public List<Reading> getReadings(){
+        ReadingSeries all=readings.withArchive();
+        List<Reading> readingsList = new ArrayList<>(all.size());
+        for(int i=0;i<all.size();i++) readingsList.add(new Reading(id, all.getMeter(i), all.getDate(i), all.getValue(i)));
         return readingsList;
     }
+    ReadingSeries getSeries(){
+        return readings;
+    }
 }
@@ -0,0 +1,310 @@
+package utility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Archive of the old readings of the contracts, in one binary segment file
+ * per group of contracts.
+ * <p>
+ * The readings of a contract are stored as a block of variable-length
+ * records: the day as the difference from the previous reading, the value
+ * as the difference in thousandths from the previous value when it has at
+ * most three decimals, otherwise as the bits that differ from the previous
+ * value without the trailing zeros, and the meter code only when it changes.
+ * Daily readings of a meter take about four bytes each. A later archiving of the
+ * same contract continues its block from the last archived reading.
+ * <p>
+ * The file starts with an index of the blocks, with the contract number,
+ * the number of readings, the position of each block and the last day and
+ * value bits to continue it. Files are rewritten as a whole, through a
+ * temporary file, and read back through memory mapping; the series of a
+ * contract keeps a {@link Block} referring to its part of the mapping and
+ * decodes it when needed.
+ * <p>
+ * Rewriting copies the blocks archived by the previous runs, so the cost of
+ * a run grows with the whole archived history of the groups it touches, not
+ * only with the readings it moves. The copy is a sequential transfer of
+ * encoded bytes, without decoding, and groups of {@link #GROUP_CONTRACTS}
+ * contracts bound the size of each file; archiving is meant to run rarely,
+ * e.g. once per billing period.
+ */
+class ReadingArchive {
+    static final int GROUP_CONTRACTS=1024;
+    private static final int MAGIC=0x52445347;
+    private static final int HEADER_BYTES=8;
+    private static final int ENTRY_BYTES=36;
+    private static final double SCALE=1000.0;
+    private static final int METER=2;
+    private static final int DECIMAL=1;
+
+    /**
+     * The archived readings of a contract
+     */
+    static class Block {
+        private final ByteBuffer data;
+        private final int offset;
+        private final int length;
+        private final int count;
+        private final long lastDay;
+        private final long lastBits;
+
+        Block(ByteBuffer data, int offset, int length, int count, long lastDay, long lastBits) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+            this.lastDay = lastDay;
+            this.lastBits = lastBits;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        long getLastDay() {
+            return lastDay;
+        }
+
+        double getLastValue() {
+            return Double.longBitsToDouble(lastBits);
+        }
+
+        /**
+         * Decodes the readings into the arrays, from position 0
+         */
+        void decode(long[] days, double[] values, String[] meters){
+            int position=offset;
+            long day=0, bits=0;
+            String meter=null;
+            for(int i=0;i<count;i++){
+                long header=readVarLong(position);
+                position+=varLongSize(header);
+                day+=unzigzag(header>>>2);
+                if((header & METER)!=0){
+                    int size=(int) readVarLong(position);
+                    position+=varLongSize(size);
+                    byte[] bytes= new byte[size];
+                    data.get(position, bytes);
+                    position+=size;
+                    meter=new String(bytes, StandardCharsets.UTF_8);
+                }
+                if((header & DECIMAL)!=0){
+                    long delta=readVarLong(position);
+                    position+=varLongSize(delta);
+                    bits=Double.doubleToLongBits((scaled(bits)+unzigzag(delta))/SCALE);
+                }else{
+                    int zeros=data.get(position++);
+                    if(zeros<64){
+                        long xor=readVarLong(position);
+                        position+=varLongSize(xor);
+                        bits^=xor<<zeros;
+                    }
+                }
+                days[i]=day;
+                values[i]=Double.longBitsToDouble(bits);
+                meters[i]=meter;
+            }
+        }
+
+        private long readVarLong(int position){
+            long value=0;
+            for(int shift=0;;shift+=7){
+                byte b=data.get(position++);
+                value|=(long) (b & 0x7f)<<shift;
+                if(b>=0) return value;
+            }
+        }
+    }
+
+    /**
+     * Growable byte array with variable-length encoding of numbers
+     */
+    private static class Encoder {
+        private byte[] bytes= new byte[1<<12];
+        private int size=0;
+
+        private void ensure(int more){
+            if(size+more>bytes.length) bytes=Arrays.copyOf(bytes, Math.max(2*bytes.length, size+more));
+        }
+
+        void writeByte(int b){
+            ensure(1);
+            bytes[size++]=(byte) b;
+        }
+
+        void writeVarLong(long value){
+            ensure(10);
+            while((value & ~0x7fL)!=0){
+                bytes[size++]=(byte) (value & 0x7f | 0x80);
+                value>>>=7;
+            }
+            bytes[size++]=(byte) value;
+        }
+
+        void writeInt(int value){
+            ensure(4);
+            for(int shift=24;shift>=0;shift-=8) bytes[size++]=(byte) (value>>>shift);
+        }
+
+        void writeLong(long value){
+            writeInt((int) (value>>>32));
+            writeInt((int) value);
+        }
+
+        void write(ByteBuffer source, int offset, int length){
+            ensure(length);
+            source.get(offset, bytes, size, length);
+            size+=length;
+        }
+
+        void write(byte[] source){
+            ensure(source.length);
+            System.arraycopy(source, 0, bytes, size, source.length);
+            size+=source.length;
+        }
+    }
+
+    private static int varLongSize(long value){
+        return Math.max(1, (64-Long.numberOfLeadingZeros(value)+6)/7);
+    }
+
+    private static long zigzag(long value){
+        return value<<1 ^ value>>63;
+    }
+
+    private static long unzigzag(long value){
+        return value>>>1 ^ -(value & 1);
+    }
+
+    /**
+     * @return the value with the given bits in thousandths, rounded
+     */
+    private static long scaled(long bits){
+        return Math.round(Double.longBitsToDouble(bits)*SCALE);
+    }
+
+    static int group(ContractImpl contract){
+        return Integer.parseInt(contract.getId().substring(1))/GROUP_CONTRACTS;
+    }
+
+    static Path file(Path directory, int group){
+        return directory.resolve("readings-"+group+".seg");
+    }
+
+    /**
+     * Moves the readings before the horizon of a group of contracts to the
+     * segment file of the group, together with the ones already archived.
+     * The latest reading before the horizon of each contract is kept in its
+     * series, so that the archived readings precede all the others.
+     * The file of the group is rewritten, copying the blocks already archived.
+     *
+     * @param contracts the contracts of the group
+     * @param horizon the first day not to archive
+     * @return the number of readings moved to the archive
+     */
+    static int archive(Path directory, int group, List<ContractImpl> contracts, long horizon) throws IOException {
+        List<ContractImpl> archived= new ArrayList<>();
+        int[] moved= new int[contracts.size()];
+        int total=0;
+        for(ContractImpl contract: contracts){
+            ReadingSeries series=contract.getSeries();
+            int count=series.archivable(horizon);
+            if(count==0 && series.getArchive()==null) continue;
+            moved[archived.size()]=count;
+            archived.add(contract);
+            total+=count;
+        }
+        if(total==0) return 0;
+
+        Encoder index= new Encoder();
+        Encoder data= new Encoder();
+        int dataStart=HEADER_BYTES+archived.size()*ENTRY_BYTES;
+        index.writeInt(MAGIC);
+        index.writeInt(archived.size());
+        long[] lastDays= new long[archived.size()];
+        long[] lastBits= new long[archived.size()];
+        for(int c=0;c<archived.size();c++){
+            ContractImpl contract=archived.get(c);
+            ReadingSeries series=contract.getSeries();
+            Block previous=series.getArchive();
+            int offset=data.size;
+            long day=0, bits=0;
+            int count=moved[c];
+            if(previous!=null){
+                data.write(previous.data, previous.offset, previous.length);
+                day=previous.lastDay;
+                bits=previous.lastBits;
+                count+=previous.count;
+            }
+            String meter=null;
+            for(int i=0;i<moved[c];i++){
+                long next=series.getDay(i);
+                boolean meterChanged=!series.getMeter(i).equals(meter);
+                double value=series.getValue(i);
+                long thousandths=Math.round(value*SCALE);
+                boolean decimal=Double.doubleToLongBits(value)==Double.doubleToLongBits(thousandths/SCALE);
+                data.writeVarLong(zigzag(next-day)<<2 | (meterChanged ? METER : 0) | (decimal ? DECIMAL : 0));
+                day=next;
+                if(meterChanged){
+                    meter=series.getMeter(i);
+                    byte[] bytes=meter.getBytes(StandardCharsets.UTF_8);
+                    data.writeVarLong(bytes.length);
+                    data.write(bytes);
+                }
+                long nextBits=Double.doubleToLongBits(value);
+                long xor=nextBits^bits;
+                long previousBits=bits;
+                bits=nextBits;
+                if(decimal){
+                    data.writeVarLong(zigzag(thousandths-scaled(previousBits)));
+                }else if(xor==0){
+                    data.writeByte(64);
+                }else{
+                    int zeros=Long.numberOfTrailingZeros(xor);
+                    data.writeByte(zeros);
+                    data.writeVarLong(xor>>>zeros);
+                }
+            }
+            if((long) dataStart+data.size>Integer.MAX_VALUE) throw new IOException("Segment too large for group "+group);
+            lastDays[c]=day;
+            lastBits[c]=bits;
+            index.writeInt(Integer.parseInt(contract.getId().substring(1)));
+            index.writeInt(count);
+            index.writeLong(dataStart+offset);
+            index.writeInt(data.size-offset);
+            index.writeLong(day);
+            index.writeLong(bits);
+        }
+
+        Path file=file(directory, group);
+        Path temporary=directory.resolve(file.getFileName()+".tmp");
+        try(FileChannel channel= FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            ByteBuffer header=ByteBuffer.wrap(index.bytes, 0, index.size);
+            ByteBuffer body=ByteBuffer.wrap(data.bytes, 0, data.size);
+            while(header.hasRemaining() || body.hasRemaining()) channel.write(new ByteBuffer[]{header, body});
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        MappedByteBuffer mapped;
+        try(FileChannel channel= FileChannel.open(file, StandardOpenOption.READ)){
+            mapped=channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        ByteBuffer entries=mapped.duplicate();
+        for(int c=0;c<archived.size();c++){
+            int entry=HEADER_BYTES+c*ENTRY_BYTES;
+            Block block= new Block(mapped, (int) entries.getLong(entry+8), entries.getInt(entry+16), entries.getInt(entry+4), lastDays[c], lastBits[c]);
+            archived.get(c).getSeries().archive(block, moved[c]);
+        }
+        return total;
+    }
+}
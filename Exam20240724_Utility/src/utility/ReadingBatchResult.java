@@ -0,0 +1,37 @@
+package utility;
+
+import java.util.*;
+
+/**
+ * Outcome of a batch of readings: the number of records accepted and the
+ * records that were rejected, with the reason.
+ */
+public class ReadingBatchResult {
+    private final int accepted;
+    private final SortedMap<Integer,String> rejected;
+
+    public ReadingBatchResult(int accepted, SortedMap<Integer,String> rejected) {
+        this.accepted = accepted;
+        this.rejected = Collections.unmodifiableSortedMap(rejected);
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * @return the reason of rejection of each bad record, by position in the batch starting from 0
+     */
+    public SortedMap<Integer,String> getRejected() {
+        return rejected;
+    }
+
+    public boolean hasRejected() {
+        return !rejected.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return accepted+" accepted, "+rejected.size()+" rejected";
+    }
+}
@@ -0,0 +1,142 @@
+package utility;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Ingestion of a batch of readings.
+ * <p>
+ * Each record is validated against the contract and the meter installed on
+ * its service point, as {@link Utility#addReading} does; the binding of a
+ * contract to its meter is resolved once per batch and the dates are parsed
+ * once per distinct string. Readings following the latest one of their
+ * contract are appended to its series at once; the others are buffered per
+ * contract and stored at the end of the batch, sorted by day, with a single
+ * merge into the series. Within a batch, a later record for the same
+ * contract and day replaces an earlier one.
+ */
+class ReadingIngest {
+    private final Map<String,ContractImpl> contracts;
+    private final Map<String,Meter> meters;
+    private final Map<String,Run> runs= new HashMap<>();
+    private final Map<String,Long> dates= new HashMap<>();
+    private final SortedMap<Integer,String> rejected= new TreeMap<>();
+    private Run last;
+
+    ReadingIngest(Map<String,ContractImpl> contracts, Map<String,Meter> meters) {
+        this.contracts = contracts;
+        this.meters = meters;
+    }
+
+    /**
+     * Readings of a contract buffered in the batch, together with the
+     * id of the meter bound to the contract
+     */
+    private static class Run {
+        final ContractImpl contract;
+        final String meter;
+        long[] days;
+        double[] values;
+        int size=0;
+        boolean sorted=true;
+
+        Run(ContractImpl contract, String meter) {
+            this.contract = contract;
+            this.meter = meter;
+        }
+
+        void add(long day, double value){
+            if(days==null){
+                days=new long[4];
+                values=new double[4];
+            }else if(size==days.length){
+                days=Arrays.copyOf(days, 2*size);
+                values=Arrays.copyOf(values, 2*size);
+            }
+            if(size>0 && day<=days[size-1]) sorted=false;
+            days[size]=day;
+            values[size++]=value;
+        }
+
+        /**
+         * Sorts the readings by day keeping, for each day, the last one added
+         */
+        void normalize(){
+            if(sorted) return;
+            Integer[] order= new Integer[size];
+            for(int i=0;i<size;i++) order[i]=i;
+            Arrays.sort(order, Comparator.comparingLong(i->days[i]));
+            long[] sortedDays= new long[size];
+            double[] sortedValues= new double[size];
+            int count=0;
+            for(int i: order){
+                if(count>0 && sortedDays[count-1]==days[i]) count--;
+                sortedDays[count]=days[i];
+                sortedValues[count++]=values[i];
+            }
+            days=sortedDays;
+            values=sortedValues;
+            size=count;
+        }
+    }
+
+    /**
+     * Validates a record and buffers it if valid
+     *
+     * @param index position of the record in the batch
+     */
+    void accept(int index, String contractId, String meterId, String date, double value){
+        Run run=last;
+        if(run==null || !run.contract.getId().equals(contractId)){
+            run=contractId==null ? null : runs.get(contractId);
+            if(run==null){
+                ContractImpl contract=contractId==null ? null : contracts.get(contractId);
+                if(contract==null){
+                    rejected.put(index, "Unknown contract "+contractId);
+                    return;
+                }
+                Optional<Meter> installed=contract.getServicePoint().getMeter();
+                if(installed.isEmpty()){
+                    rejected.put(index, "No meter installed for contract "+contractId);
+                    return;
+                }
+                run=new Run(contract, installed.get().getId());
+                runs.put(contractId, run);
+            }
+            last=run;
+        }
+        if(!run.meter.equals(meterId)){
+            rejected.put(index, (meters.containsKey(meterId) ? "Meter "+meterId+" not installed for contract " : "Unknown meter "+meterId+" for contract ")+contractId);
+            return;
+        }
+        Long day=date==null ? null : dates.get(date);
+        if(day==null){
+            try{
+                day=LocalDate.parse(date).toEpochDay();
+            }catch(DateTimeParseException | NullPointerException e){
+                rejected.put(index, "Invalid date "+date);
+                return;
+            }
+            dates.put(date, day);
+        }
+        ReadingSeries series=run.contract.getSeries();
+        if(series.size()==0 || day>series.getDay(series.size()-1)) series.add(day, value, run.meter);
+        else run.add(day, value);
+    }
+
+    /**
+     * Stores the buffered readings
+     *
+     * @param records the number of records of the batch
+     * @return the outcome of the batch
+     */
+    ReadingBatchResult finish(int records){
+        for(Run run: runs.values()){
+            if(run.size==0) continue;
+            run.normalize();
+            run.contract.getSeries().addAll(run.days, run.values, run.size, run.meter);
+        }
+        return new ReadingBatchResult(records-rejected.size(), rejected);
+    }
+}
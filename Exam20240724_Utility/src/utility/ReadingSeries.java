@@ -0,0 +1,316 @@
+package utility;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Time series of the readings of a contract.
+ * <p>
+ * Readings are kept sorted by date in parallel primitive arrays holding the
+ * epoch day and the value, plus the code of the meter that sent them.
+ * Readings arriving in date order are appended, out of order ones are
+ * inserted at their position; a reading for a date already present replaces
+ * the previous one. The latest reading is the last element and estimates
+ * locate the surrounding readings with a binary search.
+ * <p>
+ * A listener can follow the segments between consecutive readings: when
+ * readings are added, the segments they replace are reported as removed
+ * and the new ones as added.
+ * <p>
+ * The oldest readings can be moved to a {@link ReadingArchive}, keeping at
+ * least one reading in the arrays. Queries that need them, the ones before
+ * the first reading in the arrays, decode the archived readings in a
+ * temporary series; a reading added before the first one in the arrays
+ * brings the archived readings back into the series, while one replacing it
+ * leaves them archived, reporting the segment from the last archived reading.
+ */
+class ReadingSeries {
+    /**
+     * Receives the changes of the segments between consecutive readings
+     */
+    interface SegmentListener {
+        /**
+         * @param sign {@code 1} if the segment has been added, {@code -1} if it has been removed
+         */
+        void segment(long fromDay, double fromValue, long toDay, double toValue, int sign);
+    }
+
+    private static final int INITIAL_CAPACITY=4;
+    private long[] days= new long[INITIAL_CAPACITY];
+    private double[] values= new double[INITIAL_CAPACITY];
+    private String[] meters= new String[INITIAL_CAPACITY];
+    private int size=0;
+    private SegmentListener listener;
+    private ReadingArchive.Block archive;
+
+    void setListener(SegmentListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Reports the segments between the readings from {@code from} to {@code to}, if there is a listener;
+     * segment {@code -1} goes from the last archived reading to the first one in the arrays
+     */
+    private void segments(int from, int to, int sign){
+        if(listener==null) return;
+        if(from<0 && to>=0 && archive!=null && size>0) listener.segment(archive.getLastDay(), archive.getLastValue(), days[0], values[0], sign);
+        for(int i=Math.max(from, 0);i<to && i+1<size;i++) listener.segment(days[i], values[i], days[i+1], values[i+1], sign);
+    }
+
+    /**
+     * Adds a reading
+     *
+     * @return {@code true} if the reading has been added,
+     *         {@code false} if it replaced a reading of the same day
+     */
+    boolean add(long day, double value, String meter){
+        if(archive!=null && day<days[0]) restore();
+        int position;
+        if(size==0 || day>days[size-1]){
+            position=size;
+        }else{
+            position=Arrays.binarySearch(days, 0, size, day);
+            if(position>=0){
+                segments(position-1, position+1, -1);
+                values[position]=value;
+                meters[position]=meter;
+                segments(position-1, position+1, 1);
+                return false;
+            }
+            position=-position-1;
+        }
+        segments(position-1, position, -1);
+        if(size==days.length) grow();
+        if(position<size){
+            System.arraycopy(days, position, days, position+1, size-position);
+            System.arraycopy(values, position, values, position+1, size-position);
+            System.arraycopy(meters, position, meters, position+1, size-position);
+        }
+        days[position]=day;
+        values[position]=value;
+        meters[position]=meter;
+        size++;
+        segments(position-1, position+1, 1);
+        return true;
+    }
+
+    /**
+     * Adds a run of readings of the same meter with a single merge of the series;
+     * a reading of the run replaces the one of the same day in the series
+     *
+     * @param days the days, in strictly increasing order
+     * @param values the values
+     * @param count the number of readings of the run
+     * @return the number of readings added, excluding the replaced ones
+     */
+    int addAll(long[] days, double[] values, int count, String meter){
+        if(count==0) return 0;
+        if(archive!=null && days[0]<this.days[0]) restore();
+        if(size+count>this.days.length) ensureCapacity(size+count);
+        if(size==0 || days[0]>this.days[size-1]){
+            System.arraycopy(days, 0, this.days, size, count);
+            System.arraycopy(values, 0, this.values, size, count);
+            Arrays.fill(meters, size, size+count, meter);
+            size+=count;
+            segments(size-count-1, size-1, 1);
+            return count;
+        }
+        int first=floor(days[0]-1);
+        segments(first, ceiling(days[count-1]+1), -1);
+        // merge backwards from the end, then close the gap left by replaced readings
+        int i=size-1, j=count-1, k=size+count-1;
+        while(j>=0){
+            if(i>=0 && this.days[i]>days[j]){
+                move(i--, k--);
+            }else{
+                if(i>=0 && this.days[i]==days[j]) i--;
+                this.days[k]=days[j];
+                this.values[k]=values[j];
+                meters[k--]=meter;
+                j--;
+            }
+        }
+        int gap=k-i;
+        if(gap>0){
+            System.arraycopy(this.days, k+1, this.days, i+1, size+count-k-1);
+            System.arraycopy(this.values, k+1, this.values, i+1, size+count-k-1);
+            System.arraycopy(meters, k+1, meters, i+1, size+count-k-1);
+            Arrays.fill(meters, size+count-gap, size+count, null);
+        }
+        size+=count-gap;
+        segments(first, ceiling(days[count-1]+1), 1);
+        return count-gap;
+    }
+
+    private void move(int from, int to){
+        days[to]=days[from];
+        values[to]=values[from];
+        meters[to]=meters[from];
+    }
+
+    private void grow(){
+        ensureCapacity(days.length+(days.length>>1));
+    }
+
+    private void ensureCapacity(int capacity){
+        capacity=Math.max(capacity, days.length+(days.length>>1));
+        days=Arrays.copyOf(days, capacity);
+        values=Arrays.copyOf(values, capacity);
+        meters=Arrays.copyOf(meters, capacity);
+    }
+
+    /**
+     * @return the archived readings, {@code null} if none
+     */
+    ReadingArchive.Block getArchive(){
+        return archive;
+    }
+
+    /**
+     * @return the number of readings that can be archived to keep only the
+     *         readings from the horizon on and the latest one before it
+     */
+    int archivable(long horizon){
+        return Math.max(0, ceiling(horizon)-1);
+    }
+
+    /**
+     * Removes the first readings, that have been archived in the block
+     * together with the ones already archived
+     */
+    void archive(ReadingArchive.Block block, int count){
+        System.arraycopy(days, count, days, 0, size-count);
+        System.arraycopy(values, count, values, 0, size-count);
+        System.arraycopy(meters, count, meters, 0, size-count);
+        size-=count;
+        int capacity=Math.max(INITIAL_CAPACITY, size+(size>>1));
+        if(capacity<days.length){
+            days=Arrays.copyOf(days, capacity);
+            values=Arrays.copyOf(values, capacity);
+            meters=Arrays.copyOf(meters, capacity);
+        }else{
+            Arrays.fill(meters, size, size+count, null);
+        }
+        archive=block;
+    }
+
+    /**
+     * Moves the archived readings back into the arrays
+     */
+    private void restore(){
+        ReadingSeries all=withArchive();
+        days=all.days;
+        values=all.values;
+        meters=all.meters;
+        size=all.size;
+        archive=null;
+    }
+
+    /**
+     * @return a series with the archived readings followed by the others,
+     *         this series if there are no archived readings
+     */
+    ReadingSeries withArchive(){
+        if(archive==null) return this;
+        ReadingSeries all= new ReadingSeries();
+        int archived=archive.getCount();
+        int capacity=archived+size+INITIAL_CAPACITY;
+        all.days=new long[capacity];
+        all.values=new double[capacity];
+        all.meters=new String[capacity];
+        archive.decode(all.days, all.values, all.meters);
+        System.arraycopy(days, 0, all.days, archived, size);
+        System.arraycopy(values, 0, all.values, archived, size);
+        System.arraycopy(meters, 0, all.meters, archived, size);
+        all.size=archived+size;
+        return all;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getDay(int i){
+        return days[i];
+    }
+
+    double getValue(int i){
+        return values[i];
+    }
+
+    String getMeter(int i){
+        return meters[i];
+    }
+
+    String getDate(int i){
+        return LocalDate.ofEpochDay(days[i]).toString();
+    }
+
+    /**
+     * @return the value of the most recent reading, NaN if there are no readings
+     */
+    double getLatest(){
+        return size==0 ? Double.NaN : values[size-1];
+    }
+
+    /**
+     * @return the position of the last reading at or before the day, -1 if none
+     */
+    int floor(long day){
+        int position=Arrays.binarySearch(days, 0, size, day);
+        return position>=0 ? position : -position-2;
+    }
+
+    /**
+     * @return the position of the first reading at or after the day, {@code size()} if none
+     */
+    int ceiling(long day){
+        int position=Arrays.binarySearch(days, 0, size, day);
+        return position>=0 ? position : -position-1;
+    }
+
+    /**
+     * Estimates the reading of a day by linear interpolation of the surrounding
+     * readings, or extrapolation of the latest two after the last reading
+     *
+     * @return the estimate, NaN if there are less than two readings or the day precedes the first one
+     */
+    double estimate(long day){
+        if(archive!=null && (day<days[0] || size<2)) return withArchive().estimate(day);
+        if(size<2) return Double.NaN;
+        int position=floor(day);
+        if(position<0) return Double.NaN;
+        if(days[position]==day) return values[position];
+        if(position==size-1) position--;
+        return interpolate(position, day);
+    }
+
+    /**
+     * Estimates the readings of a sequence of increasing days, as {@link #estimate},
+     * walking the series once with a cursor
+     *
+     * @param days the days, in increasing order
+     * @param estimates filled with the estimates
+     * @return {@code false} if some estimate is not available
+     */
+    boolean estimateAll(long[] days, double[] estimates){
+        if(archive!=null && days.length>0 && (days[0]<this.days[0] || size<2)) return withArchive().estimateAll(days, estimates);
+        if(size<2 || days.length==0) return days.length==0;
+        int position=floor(days[0]);
+        if(position<0) return false;
+        for(int d=0;d<days.length;d++){
+            long day=days[d];
+            while(position+1<size && this.days[position+1]<=day) position++;
+            if(this.days[position]==day) estimates[d]=values[position];
+            else estimates[d]=interpolate(position==size-1 ? position-1 : position, day);
+        }
+        return true;
+    }
+
+    /**
+     * @return the value at the day on the line through the readings at {@code i} and {@code i+1}
+     */
+    double interpolate(int i, long day){
+        return values[i] + (day - days[i]) * (values[i+1] - values[i]) / (days[i+1] - days[i]);
+    }
+}
@@ -0,0 +1,242 @@
+package utility;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Grid index of the positions of the service points.
+ * <p>
+ * Positions are stored in primitive arrays and the service points are
+ * bucketed in square cells of {@link #CELL_DEGREES} degrees, keyed by row
+ * and column; only non-empty cells are allocated. Longitudes are kept in
+ * [-180, 180) and columns wrap around the 180th meridian, so boxes, distances
+ * and rings of cells that cross it are split or continue on the other side.
+ * Box queries visit the cells overlapping the box, or all the non-empty
+ * cells when they are fewer. Nearest-neighbour queries visit rings of cells
+ * around the query point, stopping when the closest position that a further
+ * ring could hold is farther than the k-th point found.
+ * <p>
+ * The grid is not logarithmic: a query costs the cells it visits, that is
+ * the area it covers in cells, bounded by a scan of all the non-empty cells.
+ * Queries in dense areas visit few cells, but a nearest-neighbour query far
+ * from the points, or among sparse points, ends up scanning all the non-empty
+ * cells, which is linear in the number of service points. This is accepted
+ * because service points cluster around the municipalities and the grid needs
+ * no rebalancing as they are added; a hierarchical index would bound the
+ * sparse case at the cost of more memory and slower insertions.
+ */
+class SpatialIndex {
+    static final double CELL_DEGREES=0.01;
+    static final double EARTH_RADIUS_KM=6371.0088;
+    static final double KM_PER_DEGREE=Math.toRadians(1)*EARTH_RADIUS_KM;
+    private static final int COLUMNS=(int) Math.round(360/CELL_DEGREES);
+    private ServicePoint[] points= new ServicePoint[1024];
+    private double[] lats= new double[1024];
+    private double[] lons= new double[1024];
+    private int size=0;
+    private final Map<Long,Cell> cells= new HashMap<>();
+    private int minRow=Integer.MAX_VALUE, maxRow=Integer.MIN_VALUE, minCol=Integer.MAX_VALUE, maxCol=Integer.MIN_VALUE;
+
+    private static class Cell {
+        int[] ids= new int[4];
+        int size=0;
+        void add(int id){
+            if(size==ids.length) ids=Arrays.copyOf(ids, 2*size);
+            ids[size++]=id;
+        }
+    }
+
+    private static int row(double lat){
+        return (int) Math.floor(lat/CELL_DEGREES);
+    }
+
+    private static int col(double lon){
+        return (int) Math.floor(lon/CELL_DEGREES);
+    }
+
+    /**
+     * @return the longitude in [-180, 180)
+     */
+    static double normalize(double lon){
+        return lon>=-180 && lon<180 ? lon : lon-360*Math.floor((lon+180)/360);
+    }
+
+    /**
+     * @return the column wrapped around the 180th meridian
+     */
+    private static int wrap(int col){
+        return Math.floorMod(col+COLUMNS/2, COLUMNS)-COLUMNS/2;
+    }
+
+    /**
+     * @return the distance in columns, the shorter way around
+     */
+    private static int colDistance(int col1, int col2){
+        int d=Math.floorMod(col1-col2, COLUMNS);
+        return Math.min(d, COLUMNS-d);
+    }
+
+    private static long key(int row, int col){
+        return (long) row<<32 | (col & 0xffffffffL);
+    }
+
+    void add(ServicePoint point){
+        if(size==points.length){
+            points=Arrays.copyOf(points, 2*size);
+            lats=Arrays.copyOf(lats, 2*size);
+            lons=Arrays.copyOf(lons, 2*size);
+        }
+        int id=size++;
+        points[id]=point;
+        lats[id]=point.getPosition().getLat();
+        lons[id]=normalize(point.getPosition().getLon());
+        int row=row(lats[id]), col=col(lons[id]);
+        cells.computeIfAbsent(key(row, col), k->new Cell()).add(id);
+        minRow=Math.min(minRow, row);
+        maxRow=Math.max(maxRow, row);
+        minCol=Math.min(minCol, col);
+        maxCol=Math.max(maxCol, col);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Great-circle distance between two positions, with the haversine formula
+     *
+     * @return the distance in km
+     */
+    static double distance(double lat1, double lon1, double lat2, double lon2){
+        double dLat=Math.toRadians(lat2-lat1);
+        double dLon=Math.toRadians(lon2-lon1);
+        double a=Math.sin(dLat/2)*Math.sin(dLat/2)
+                +Math.cos(Math.toRadians(lat1))*Math.cos(Math.toRadians(lat2))*Math.sin(dLon/2)*Math.sin(dLon/2);
+        return 2*EARTH_RADIUS_KM*Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Finds the service points in a box of latitude and longitude, bounds included;
+     * the box goes east from {@code minLon} to {@code maxLon}, so it crosses the
+     * 180th meridian when {@code minLon} is greater
+     */
+    List<ServicePoint> inBox(double minLat, double minLon, double maxLat, double maxLon, Predicate<ServicePoint> filter){
+        List<ServicePoint> found= new ArrayList<>();
+        double width=maxLon-minLon>=360 ? 360 : ((maxLon-minLon)%360+360)%360;
+        if(width>=360){
+            inBox(minLat, -180, maxLat, 180, filter, found);
+            return found;
+        }
+        double from=normalize(minLon), to=from+width;
+        if(to<180){
+            inBox(minLat, from, maxLat, to, filter, found);
+        }else{
+            inBox(minLat, from, maxLat, 180, filter, found);
+            inBox(minLat, -180, maxLat, to-360, filter, found);
+        }
+        return found;
+    }
+
+    private void inBox(double minLat, double minLon, double maxLat, double maxLon, Predicate<ServicePoint> filter, List<ServicePoint> found){
+        int fromRow=Math.max(row(minLat), minRow), toRow=Math.min(row(maxLat), maxRow);
+        int fromCol=Math.max(col(minLon), minCol), toCol=Math.min(col(maxLon), maxCol);
+        if(fromRow>toRow || fromCol>toCol) return;
+        if((long) (toRow-fromRow+1)*(toCol-fromCol+1)>cells.size()){
+            for(Cell cell: cells.values()) collect(cell, minLat, minLon, maxLat, maxLon, filter, found);
+        }else{
+            for(int row=fromRow;row<=toRow;row++){
+                for(int col=fromCol;col<=toCol;col++){
+                    Cell cell=cells.get(key(row, col));
+                    if(cell!=null) collect(cell, minLat, minLon, maxLat, maxLon, filter, found);
+                }
+            }
+        }
+    }
+
+    private void collect(Cell cell, double minLat, double minLon, double maxLat, double maxLon, Predicate<ServicePoint> filter, List<ServicePoint> found){
+        for(int i=0;i<cell.size;i++){
+            int id=cell.ids[i];
+            if(lats[id]>=minLat && lats[id]<=maxLat && lons[id]>=minLon && lons[id]<=maxLon && filter.test(points[id])) found.add(points[id]);
+        }
+    }
+
+    /**
+     * Finds the service points within a distance from a position
+     *
+     * @return the service points, sorted by distance
+     */
+    List<ServicePoint> within(double lat, double lon, double km, Predicate<ServicePoint> filter){
+        double dLat=km/KM_PER_DEGREE;
+        double cos=Math.cos(Math.toRadians(Math.min(90, Math.abs(lat)+dLat)));
+        double dLon=cos<=1e-9 ? 180 : Math.min(180, km/(KM_PER_DEGREE*cos));
+        List<ServicePoint> box=inBox(lat-dLat, lon-dLon, lat+dLat, lon+dLon, filter);
+        double[] distances= new double[box.size()];
+        List<Integer> found= new ArrayList<>();
+        for(int i=0;i<box.size();i++){
+            Point position=box.get(i).getPosition();
+            distances[i]=distance(lat, lon, position.getLat(), position.getLon());
+            if(distances[i]<=km) found.add(i);
+        }
+        found.sort(Comparator.comparingDouble(i->distances[i]));
+        List<ServicePoint> result= new ArrayList<>(found.size());
+        for(int i: found) result.add(box.get(i));
+        return result;
+    }
+
+    /**
+     * Finds the k service points nearest to a position
+     *
+     * @return the service points, sorted by distance
+     */
+    List<ServicePoint> nearest(double lat, double lon, int k, Predicate<ServicePoint> filter){
+        if(k<=0 || size==0) return new ArrayList<>();
+        // max-heap of the best candidates, as {distance, id}
+        PriorityQueue<double[]> best= new PriorityQueue<>(k+1, (a, b)->Double.compare(b[0], a[0]));
+        lon=normalize(lon);
+        int row=row(lat), col=col(lon);
+        int maxRing=Math.max(Math.max(row-minRow, maxRow-row), Math.max(col-minCol, maxCol-col));
+        for(int ring=0;ring<=maxRing;ring++){
+            if(ring>0 && best.size()==k && best.peek()[0]<=ringDistance(lat, ring-1)) break;
+            if((long) (2*ring+1)*(2*ring+1)>4L*cells.size() || 2*ring+1>COLUMNS){
+                // rings have become larger than the populated area: scan the cells not visited yet
+                for(Map.Entry<Long,Cell> cell: cells.entrySet()){
+                    int r=(int) (cell.getKey()>>32), c=(int) (long) cell.getKey();
+                    if(Math.abs(r-row)>=ring || colDistance(c, col)>=ring) offer(cell.getValue(), lat, lon, k, filter, best);
+                }
+                break;
+            }
+            for(int r=row-ring;r<=row+ring;r++){
+                boolean edge=r==row-ring || r==row+ring;
+                for(int c=col-ring;c<=col+ring;c+=edge ? 1 : 2*ring){
+                    Cell cell=cells.get(key(r, wrap(c)));
+                    if(cell!=null) offer(cell, lat, lon, k, filter, best);
+                }
+            }
+        }
+        List<double[]> sorted= new ArrayList<>(best);
+        sorted.sort(Comparator.comparingDouble(b->b[0]));
+        List<ServicePoint> result= new ArrayList<>(sorted.size());
+        for(double[] b: sorted) result.add(points[(int) b[1]]);
+        return result;
+    }
+
+    /**
+     * @return a lower bound of the distance from the position to any cell outside the given ring
+     */
+    private static double ringDistance(double lat, int ring){
+        double degrees=ring*CELL_DEGREES;
+        double cos=Math.cos(Math.toRadians(Math.min(90, Math.abs(lat)+degrees+CELL_DEGREES)));
+        return degrees*KM_PER_DEGREE*Math.max(0, cos);
+    }
+
+    private void offer(Cell cell, double lat, double lon, int k, Predicate<ServicePoint> filter, PriorityQueue<double[]> best){
+        for(int i=0;i<cell.size;i++){
+            int id=cell.ids[i];
+            double d=distance(lat, lon, lats[id], lons[id]);
+            if(best.size()==k && d>=best.peek()[0]) continue;
+            if(!filter.test(points[id])) continue;
+            best.add(new double[]{d, id});
+            if(best.size()>k) best.poll();
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package utility;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Represents the facade class for the utility company.
@@ -16,7 +26,9 @@ public class Utility {
     Map<String,ServicePoint> servicespointMap= new HashMap<>();
     Map<String,Meter> metersMap= new HashMap<>();
     Map<String,User> usersMap= new HashMap<>();
-    Map<String,Contract> contractsMap= new HashMap<>();
+    Map<String,ContractImpl> contractsMap= new HashMap<>();
+    private final SpatialIndex spatialIndex= new SpatialIndex();
+    private final ConsumptionRollup rollup= new ConsumptionRollup();
     private int servicepointCounter=1;
     private int meterCounter=1;
     private int userCounter=1;
@@ -33,7 +45,10 @@ public class Utility {
      */
     public String defineServicePoint(String municipality, String address, double lat, double lon) {
         String code=String.format("SP%d", servicepointCounter++);
-        servicespointMap.put(code, new ServicePointImpl(code, municipality, address, new Point(lon, lat)));
+        ServicePoint servicePoint= new ServicePointImpl(code, municipality, address, new Point(lon, lat));
+        servicespointMap.put(code, servicePoint);
+        spatialIndex.add(servicePoint);
+        rollup.addMunicipality(municipality);
         return code;
     }
 
@@ -56,6 +71,49 @@ public class Utility {
         return servicespointMap.get(spId);
     }
 
+    /**
+     * Returns the service points located in a box of latitude and longitude,
+     * bounds included. The box goes east from {@code minLon} to {@code maxLon},
+     * so it crosses the 180th meridian when {@code minLon} is greater.
+     *
+     * @param minLat minimum latitude
+     * @param minLon minimum longitude
+     * @param maxLat maximum latitude
+     * @param maxLon maximum longitude
+     * @return the ids of the service points
+     */
+    public Collection<String> getServicePointsInBox(double minLat, double minLon, double maxLat, double maxLon) {
+        return spatialIndex.inBox(minLat, minLon, maxLat, maxLon, sp->true).stream().map(ServicePoint::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the service points within a distance from a position
+     * that satisfy a condition, e.g. {@code sp->sp.getMeter().isEmpty()}
+     * for the ones without an installed meter.
+     *
+     * @param lat    latitude of the position
+     * @param lon    longitude of the position
+     * @param km     the distance in km
+     * @param filter the condition
+     * @return the ids of the service points, nearest first
+     */
+    public List<String> getServicePointsWithin(double lat, double lon, double km, Predicate<ServicePoint> filter) {
+        return spatialIndex.within(lat, lon, km, filter).stream().map(ServicePoint::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the service points nearest to a position that satisfy a condition.
+     *
+     * @param lat    latitude of the position
+     * @param lon    longitude of the position
+     * @param k      the maximum number of service points
+     * @param filter the condition
+     * @return the ids of the service points, nearest first
+     */
+    public List<String> getNearestServicePoints(double lat, double lon, int k, Predicate<ServicePoint> filter) {
+        return spatialIndex.nearest(lat, lon, k, filter).stream().map(ServicePoint::getId).collect(Collectors.toList());
+    }
+
     /**
      * Adds a new meter to the utility company.
      *
@@ -158,7 +216,9 @@ public class Utility {
         if(!servicespointMap.containsKey(pdp)) throw new UtilityException("");
         if(servicespointMap.get(pdp).getMeter().isEmpty()) throw new UtilityException("");
         String id=String.format("C%d",contractCounter++);
-        contractsMap.put(id, new ContractImpl(id, usersMap.get(user), servicespointMap.get(pdp)));
+        ContractImpl contract= new ContractImpl(id, usersMap.get(user), servicespointMap.get(pdp));
+        contract.getSeries().setListener(rollup.listener(contract.getServicePoint().getMunicipality()));
+        contractsMap.put(id, contract);
         return id;
     }
 
@@ -189,7 +249,48 @@ public class Utility {
         if(!metersMap.containsKey(meterId)) throw new UtilityException("");
         Optional<Meter> meter=contractsMap.get(contractId).getServicePoint().getMeter();
         if(!meter.isPresent() || !meter.get().getId().equals(meterId)) throw new UtilityException("");
-        contractsMap.get(contractId).addReading(meterId, date, value);
+        try{
+            contractsMap.get(contractId).addReading(meterId, date, value);
+        }catch(DateTimeParseException e){
+            throw new UtilityException("Invalid date "+date);
+        }
+    }
+
+    /**
+     * Adds a batch of readings, given as parallel arrays.
+     * Each record is validated as in {@link #addReading}; invalid records are
+     * reported in the result instead of interrupting the batch.
+     *
+     * @param contractIds the ids of the contracts
+     * @param meterIds    the ids of the meters
+     * @param dates       the dates of the readings
+     * @param values      the metering values
+     * @return the number of accepted records and the rejected ones, by position
+     */
+    public ReadingBatchResult addReadings(String[] contractIds, String[] meterIds, String[] dates, double[] values) {
+        int records=contractIds.length;
+        if(meterIds.length!=records || dates.length!=records || values.length!=records) throw new IllegalArgumentException("Arrays of different length");
+        ReadingIngest ingest= new ReadingIngest(contractsMap, metersMap);
+        for(int i=0;i<records;i++) ingest.accept(i, contractIds[i], meterIds[i], dates[i], values[i]);
+        return ingest.finish(records);
+    }
+
+    /**
+     * Adds a batch of readings.
+     * Each record is validated as in {@link #addReading}; invalid records are
+     * reported in the result instead of interrupting the batch.
+     *
+     * @param readings the readings
+     * @return the number of accepted records and the rejected ones, by position in the stream
+     */
+    public ReadingBatchResult addReadings(Stream<Reading> readings) {
+        ReadingIngest ingest= new ReadingIngest(contractsMap, metersMap);
+        int records=0;
+        for(Iterator<Reading> it=readings.iterator();it.hasNext();records++){
+            Reading r=it.next();
+            ingest.accept(records, r.getContractcode(), r.getMetercode(), r.getDate(), r.getValue());
+        }
+        return ingest.finish(records);
     }
 
     /**
@@ -199,7 +300,10 @@ public class Utility {
      * @return a map that links dates and metering values
      */      
     public Map<String,Double> getReadings(String contractId) {
-        return contractsMap.get(contractId).getReadings().stream().collect(Collectors.toMap(Reading::getDate, Reading::getValue));
+        ReadingSeries series=contractsMap.get(contractId).getSeries().withArchive();
+        Map<String,Double> readings= new HashMap<>();
+        for(int i=0;i<series.size();i++) readings.put(series.getDate(i), series.getValue(i));
+        return readings;
     }
 
     /**
@@ -209,9 +313,7 @@ public class Utility {
      * @return a metering value 
      */
     public double getLatestReading(String contractId) {
-        Optional<Reading> lastreading=contractsMap.get(contractId).getReadings().stream().sorted(Comparator.comparing(Reading::getDate).reversed()).findFirst();
-        if(lastreading.isPresent()) return lastreading.get().getValue();
-        return Double.NaN;
+        return contractsMap.get(contractId).getSeries().getLatest();
     }
 
     //----
@@ -228,21 +330,9 @@ public class Utility {
      */
     public double getEstimatedReading(String contractId, String date) throws UtilityException {
         if(!contractsMap.containsKey(contractId)) throw new UtilityException("");
-        List<Reading> readings=contractsMap.get(contractId).getReadings().stream().sorted(Comparator.comparing(Reading::getDate)).collect(Collectors.toList());
-        LocalDate targetdDate=LocalDate.parse(date);
-        if(readings.size()<2) throw new UtilityException("");
-        if(targetdDate.isBefore(LocalDate.parse(readings.get(0).getDate()))) throw new UtilityException("");
-        for(int i=0;i<readings.size();i++){
-            LocalDate currentDate=LocalDate.parse(readings.get(i).getDate());
-            if(currentDate.isEqual(targetdDate)) return readings.get(i).getValue();
-            if(currentDate.isAfter(targetdDate)) return interpolate(readings.get(i-1),readings.get(i),targetdDate);
-        }
-        return interpolate(readings.get(readings.size()-2), readings.get(readings.size()-1), targetdDate);
-    }
-
-    private double interpolate(Reading r1, Reading r2, LocalDate targetDate) {
-        LocalDate t1 = LocalDate.parse(r1.getDate()), t2 = LocalDate.parse(r2.getDate());
-        return r1.getValue() + (targetDate.toEpochDay() - t1.toEpochDay()) * (r2.getValue() - r1.getValue()) / (t2.toEpochDay() - t1.toEpochDay());
+        double estimate=contractsMap.get(contractId).getSeries().estimate(LocalDate.parse(date).toEpochDay());
+        if(Double.isNaN(estimate)) throw new UtilityException("");
+        return estimate;
     }
 
     /**
@@ -269,14 +359,110 @@ public class Utility {
      * @throws UtilityException in case contract is not valid, or it is not possible to get reading estimates
      */
     public List<String> getBillBreakdown(String contractId, int monthStart, int monthEnd, int year) throws UtilityException {
-        List<String> breakdown = new ArrayList<>();
-        for (int month = monthStart; month <= monthEnd; month++) {
-            LocalDate startDate = LocalDate.of(year, month, 1);
-            LocalDate endDate = startDate.plusMonths(1).withDayOfMonth(1);
-            double startReading = getEstimatedReading(contractId, startDate.toString());
-            double endReading = getEstimatedReading(contractId, endDate.toString());
-            breakdown.add(startDate + ".." + endDate + ": " + startReading + " -> " + endReading + " = " + (endReading - startReading));
+        if(!contractsMap.containsKey(contractId)) throw new UtilityException("");
+        List<String> breakdown = new BillingRun(monthStart, monthEnd, year, 1).breakdown(contractsMap.get(contractId).getSeries());
+        if(breakdown == null) throw new UtilityException("");
+        return breakdown;
+    }
+
+    /**
+     * Writes the consumption breakdown (month by month) of all the contracts.
+     * Each line has the contract id followed by the breakdown of a month, in the format
+     * of {@link #getBillBreakdown}; contracts whose readings cannot be estimated
+     * get a single line reporting it. Nothing is written if the final month
+     * precedes the initial one. Contracts are processed in parallel
+     * and written in order of id.
+     * 
+     * @param monthStart    initial month
+     * @param monthEnd      final month
+     * @param year          year of reference
+     * @param writer        destination of the breakdown
+     * @param threads       number of threads computing the breakdown
+     * @return the number of contracts billed
+     * @throws IOException in case of error writing the breakdown
+     */
+    public int writeBillBreakdowns(int monthStart, int monthEnd, int year, Writer writer, int threads) throws IOException {
+        List<ContractImpl> contracts = new ArrayList<>(contractsMap.values());
+        contracts.sort(Comparator.comparingInt((ContractImpl c) -> c.getId().length()).thenComparing(ContractImpl::getId));
+        return new BillingRun(monthStart, monthEnd, year, threads).run(contracts, writer);
+    }
+
+    /**
+     * Moves the readings older than a date to binary segment files, one for
+     * each group of contracts, that are read back when needed; the latest
+     * reading before the date of each contract is kept in memory.
+     * The readings remain available to all the other methods.
+     * Files already in the directory for a group are replaced, so the same
+     * directory should be used each time.
+     *
+     * @param directory the directory of the segment files
+     * @param horizon   the date of the oldest readings not to archive
+     * @return the number of readings archived
+     * @throws UtilityException if the date is not valid
+     * @throws IOException in case of error writing the segment files
+     */
+    public int archiveReadings(Path directory, String horizon) throws UtilityException, IOException {
+        long day;
+        try{
+            day=LocalDate.parse(horizon).toEpochDay();
+        }catch(DateTimeParseException e){
+            throw new UtilityException("Invalid date "+horizon);
         }
-        return breakdown;    
+        Files.createDirectories(directory);
+        Map<Integer,List<ContractImpl>> groups= new TreeMap<>();
+        for(ContractImpl contract: contractsMap.values()) groups.computeIfAbsent(ReadingArchive.group(contract), g->new ArrayList<>()).add(contract);
+        int archived=0;
+        for(Map.Entry<Integer,List<ContractImpl>> group: groups.entrySet()) archived+=ReadingArchive.archive(directory, group.getKey(), group.getValue(), day);
+        return archived;
+    }
+
+    //----
+    // Consumption by municipality
+
+    /**
+     * Groups municipalities in a region.
+     *
+     * @param region         the name of the region
+     * @param municipalities the municipalities of the region, a repeated one is counted once
+     * @throws UtilityException if the region is already defined, a municipality has no service points
+     *                          or already belongs to a region
+     */
+    public void defineRegion(String region, String... municipalities) throws UtilityException {
+        if(rollup.hasRegion(region)) throw new UtilityException("Duplicate region "+region);
+        for(String municipality: municipalities) if(!rollup.hasMunicipality(municipality)) throw new UtilityException("Unknown municipality "+municipality);
+        if(!rollup.defineRegion(region, Arrays.asList(municipalities))) throw new UtilityException("Municipality already in a region");
+    }
+
+    /**
+     * Returns the consumption of all the contracts in a municipality, month by month.
+     * The consumption of a contract is interpolated between its readings and
+     * only counted from its first to its latest reading.
+     *
+     * @param municipality  the municipality
+     * @param monthStart    initial month
+     * @param monthEnd      final month
+     * @param year          year of reference
+     * @return the consumption of each month
+     * @throws UtilityException if there are no service points in the municipality
+     */
+    public List<Double> getMunicipalityConsumption(String municipality, int monthStart, int monthEnd, int year) throws UtilityException {
+        if(!rollup.hasMunicipality(municipality)) throw new UtilityException("Unknown municipality "+municipality);
+        return rollup.municipality(municipality, monthStart, monthEnd, year);
+    }
+
+    /**
+     * Returns the consumption of all the contracts in the municipalities of a region, month by month,
+     * computed as in {@link #getMunicipalityConsumption}.
+     *
+     * @param region        the region
+     * @param monthStart    initial month
+     * @param monthEnd      final month
+     * @param year          year of reference
+     * @return the consumption of each month
+     * @throws UtilityException if the region is not defined
+     */
+    public List<Double> getRegionConsumption(String region, int monthStart, int monthEnd, int year) throws UtilityException {
+        if(!rollup.hasRegion(region)) throw new UtilityException("Unknown region "+region);
+        return rollup.region(region, monthStart, monthEnd, year);
     }
 }